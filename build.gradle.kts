@@ -28,15 +28,47 @@ repositories {
     maven { url = uri("https://s01.oss.sonatype.org/content/repositories/snapshots") }
 }
 
+val jmhVersion = "1.37"
+
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+    // The classes that replace those of the main source set on Java 22 or later, in the multi-release jar
+    create("java22") {
+        java.setSrcDirs(listOf("src/main/java22"))
+        compileClasspath += sourceSets.main.get().output
+    }
+}
+
+val jmhImplementation: Configuration by configurations.getting
+val jmhAnnotationProcessor: Configuration by configurations.getting
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    jmhImplementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    jmhAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+// Runs the benchmarks with the GC profiler and writes the results to build/results/jmh/results.json.
+// Extra JMH options can be passed with -PjmhArgs="...", e.g. -PjmhArgs="-t 4 -p size=64 ObjectPool"
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks."
+    val resultFile = layout.buildDirectory.file("results/jmh/results.json").get().asFile
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args("-rf", "json", "-rff", resultFile.path, "-prof", "gc")
+    (project.findProperty("jmhArgs") as String?)?.let { args(it.trim().split(Regex("\\s+"))) }
+    doFirst { resultFile.parentFile.mkdirs() }
+}
+
 val targetJavaVersion = 17
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
@@ -45,6 +77,11 @@ tasks.withType<JavaCompile> {
     }
 }
 
+tasks.named<JavaCompile>("compileJava22Java") {
+    javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(22)) })
+    options.release.set(22)
+}
+
 java {
     val javaVersion = JavaVersion.toVersion(targetJavaVersion)
     if (JavaVersion.current() < javaVersion) {
@@ -72,7 +109,11 @@ tasks.named<Jar>("jar") {
     manifestContentCharset = "utf-8"
     metadataCharset = "utf-8"
     from("LICENSE")
+    into("META-INF/versions/22") {
+        from(sourceSets["java22"].output)
+    }
     manifest.attributes(
+        "Multi-Release" to "true",
         "Specification-Title" to projName,
         "Specification-Vendor" to orgName,
         "Specification-Version" to "0",
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The per-thread hit and miss counters, reported as secondary results.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class Counters {
+    /**
+     * The count of successful borrows.
+     */
+    public long hits;
+    /**
+     * The count of failed borrows.
+     */
+    public long misses;
+
+    /**
+     * Clears the counters before each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void clear() {
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.jmh;
+
+import org.overrun.pooling.Poolable;
+
+import java.util.Arrays;
+
+/**
+ * A pooled object with a cache line of payload.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class Item implements Poolable {
+    private final long[] data = new long[8];
+
+    /**
+     * Writes the payload, as a real user of the object would do.
+     *
+     * @param value the value.
+     * @return the sum of the payload.
+     */
+    public long touch(long value) {
+        long sum = 0;
+        for (int i = 0; i < data.length; i++) {
+            data[i] += value;
+            sum += data[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(data, 0L);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.overrun.pooling.KeyedObjectPool;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures borrow and return of {@link KeyedObjectPool} under contention, with the keys chosen uniformly.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyedPoolBenchmark {
+    /**
+     * The count of the keys.
+     */
+    @Param({"1", "16", "256"})
+    public int keys;
+    private KeyedObjectPool<Integer, Item> instance;
+    private Integer[] keyArray;
+
+    /**
+     * Creates the pool.
+     */
+    @Setup
+    public void setup() {
+        instance = new KeyedObjectPool<>(key -> new Item(), keys, 4);
+        keyArray = new Integer[keys];
+        for (int i = 0; i < keys; i++) {
+            keyArray[i] = i;
+        }
+    }
+
+    /**
+     * Cleans up the pool.
+     */
+    @TearDown
+    public void tearDown() {
+        instance.cleanup();
+    }
+
+    private long borrowReturn(Counters counters) {
+        final var state = instance.tryBorrow(keyArray[ThreadLocalRandom.current().nextInt(keys)]);
+        if (state == null) {
+            counters.misses++;
+            return 0L;
+        }
+        counters.hits++;
+        final long sum = state.get().touch(1L);
+        instance.returning(state);
+        return sum;
+    }
+
+    /**
+     * Borrows and returns an object with a single thread.
+     *
+     * @param counters the hit and miss counters.
+     * @return the value to consume.
+     */
+    @Benchmark
+    @Threads(1)
+    public long borrowReturn1(Counters counters) {
+        return borrowReturn(counters);
+    }
+
+    /**
+     * Borrows and returns an object with 4 threads.
+     *
+     * @param counters the hit and miss counters.
+     * @return the value to consume.
+     */
+    @Benchmark
+    @Threads(4)
+    public long borrowReturn4(Counters counters) {
+        return borrowReturn(counters);
+    }
+
+    /**
+     * Borrows and returns an object with one thread per available processor.
+     *
+     * @param counters the hit and miss counters.
+     * @return the value to consume.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long borrowReturnMax(Counters counters) {
+        return borrowReturn(counters);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.overrun.pooling.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures borrow and return of the {@link Pool} implementations under contention.
+ * <p>
+ * Run with {@code ./gradlew jmh}; the GC profiler reports the allocation rate in {@code gc.alloc.rate.norm}.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoolBenchmark {
+    /**
+     * The pool implementation.
+     */
+    @Param({"ObjectPool", "FixedObjectPool", "StripedObjectPool", "ThreadCachedPool"})
+    public String pool;
+    /**
+     * The size of the fixed-size pools, and the count of the objects created ahead by the growable pools.
+     */
+    @Param({"4", "64"})
+    public int size;
+    /**
+     * The percent of the size held during the whole trial; higher values cause more misses in the fixed-size pools.
+     */
+    @Param({"0", "50", "90"})
+    public int occupancy;
+    private Pool<Item> instance;
+    private final List<PoolObjectState<Item>> held = new ArrayList<>();
+
+    static Pool<Item> create(String pool, int size) {
+        return switch (pool) {
+            case "ObjectPool" -> new ObjectPool<>(Item::new, size);
+            case "FixedObjectPool" -> new FixedObjectPool<>(size, Item::new);
+            case "StripedObjectPool" -> new StripedObjectPool<>(Item::new, size);
+            case "ThreadCachedPool" -> new ThreadCachedPool<>(new FixedObjectPool<>(size, Item::new));
+            default -> throw new IllegalArgumentException("Unknown pool: " + pool);
+        };
+    }
+
+    /**
+     * Creates the pool and holds the objects given by {@link #occupancy}.
+     */
+    @Setup
+    public void setup() {
+        instance = create(pool, size);
+        final List<PoolObjectState<Item>> states = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            states.add(instance.tryBorrow());
+        }
+        final int count = size * occupancy / 100;
+        held.addAll(states.subList(0, count));
+        states.subList(count, size).forEach(instance::returning);
+    }
+
+    /**
+     * Returns the held objects and cleans up the pool.
+     */
+    @TearDown
+    public void tearDown() {
+        held.forEach(instance::returning);
+        held.clear();
+        instance.cleanup();
+    }
+
+    private long borrowReturn(Counters counters) {
+        final var state = instance.tryBorrow();
+        if (state == null) {
+            counters.misses++;
+            return 0L;
+        }
+        counters.hits++;
+        final long sum = state.get().touch(1L);
+        instance.returning(state);
+        return sum;
+    }
+
+    /**
+     * Borrows and returns an object with a single thread.
+     *
+     * @param counters the hit and miss counters.
+     * @return the value to consume.
+     */
+    @Benchmark
+    @Threads(1)
+    public long borrowReturn1(Counters counters) {
+        return borrowReturn(counters);
+    }
+
+    /**
+     * Borrows and returns an object with 4 threads.
+     *
+     * @param counters the hit and miss counters.
+     * @return the value to consume.
+     */
+    @Benchmark
+    @Threads(4)
+    public long borrowReturn4(Counters counters) {
+        return borrowReturn(counters);
+    }
+
+    /**
+     * Borrows and returns an object through a {@link Lease} in a try-with-resources statement with a single thread,
+     * to compare with {@link #borrowReturn1(Counters)}; {@code gc.alloc.rate.norm} shows the bytes allocated
+     * by each lease.
+     *
+     * @param counters the hit and miss counters.
+     * @return the value to consume.
+     */
+    @Benchmark
+    @Threads(1)
+    public long lease1(Counters counters) {
+        try (var lease = instance.lease()) {
+            if (lease == null) {
+                counters.misses++;
+                return 0L;
+            }
+            counters.hits++;
+            return lease.get().touch(1L);
+        }
+    }
+
+    /**
+     * Borrows and returns an object with one thread per available processor.
+     *
+     * @param counters the hit and miss counters.
+     * @return the value to consume.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long borrowReturnMax(Counters counters) {
+        return borrowReturn(counters);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.overrun.pooling.FixedObjectPool;
+import org.overrun.pooling.PoolConfig;
+import org.overrun.pooling.ReuseOrder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a borrow that touches the payload of the object, with each reuse order.
+ * <p>
+ * All objects of the pool are idle; with {@code LIFO} the same object is borrowed each time and stays in the cache,
+ * while with {@code FIFO} the borrows go around all objects, which do not fit in the cache when the pool is large.
+ * Run with {@code -prof perfnorm} on Linux to see the cache misses per borrow.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReuseOrderBenchmark {
+    /**
+     * The reuse order.
+     */
+    @Param({"LIFO", "FIFO"})
+    public ReuseOrder order;
+    /**
+     * The count of the objects; the larger one is bigger than the L2 cache of most CPUs.
+     */
+    @Param({"16", "65536"})
+    public int size;
+    private FixedObjectPool<Item> pool;
+
+    /**
+     * Creates the pool and constructs all objects.
+     */
+    @Setup
+    public void setup() {
+        pool = new FixedObjectPool<>(size, Item::new, null, PoolConfig.DEFAULT.withReuseOrder(order));
+        pool.prewarm(size);
+    }
+
+    /**
+     * Borrows an object, writes its payload and returns it.
+     *
+     * @return the value to consume.
+     */
+    @Benchmark
+    public long borrowAndReturn() {
+        final var state = pool.tryBorrow();
+        final long sum = state.get().touch(1L);
+        pool.returning(state);
+        return sum;
+    }
+}
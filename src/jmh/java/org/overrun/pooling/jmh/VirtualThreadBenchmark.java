@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.overrun.pooling.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the time for a crowd of virtual threads to borrow, use and return an object concurrently.
+ * <p>
+ * Each virtual thread yields while it holds the object, so all borrowers overlap. The fixed-size pool
+ * parks the borrowers that find it exhausted; none of the pools pin the carrier threads,
+ * so the time should grow linearly with the count of the threads.
+ * This benchmark needs Java 21 or later at run time.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    /**
+     * The pool implementation.
+     */
+    @Param({"StripedObjectPool", "ThreadCachedPool", "FixedObjectPool"})
+    public String pool;
+    /**
+     * The count of the concurrent virtual threads.
+     */
+    @Param({"10000", "100000"})
+    public int threads;
+    private Pool<Item> instance;
+    private ExecutorService executor;
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Creates the pool and the executor of virtual threads.
+     *
+     * @throws Throwable if virtual threads are not supported.
+     */
+    @Setup
+    public void setup() throws Throwable {
+        instance = switch (pool) {
+            case "StripedObjectPool" -> new StripedObjectPool<>(Item::new);
+            case "ThreadCachedPool" -> new ThreadCachedPool<>(new StripedObjectPool<>(Item::new), 8,
+                ThreadCachedPool.StealPolicy.NEVER, ThreadCachedPool.CacheScope.STRIPE);
+            case "FixedObjectPool" -> new FixedObjectPool<>(256, Item::new);
+            default -> throw new IllegalArgumentException("Unknown pool: " + pool);
+        };
+        try {
+            executor = (ExecutorService) MethodHandles.publicLookup()
+                .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                .invoke();
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("VirtualThreadBenchmark needs Java 21 or later", e);
+        }
+    }
+
+    /**
+     * Shuts down the executor and cleans up the pool.
+     *
+     * @throws InterruptedException if interrupted while waiting for the executor.
+     */
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        instance.cleanup();
+    }
+
+    private void borrowReturn() {
+        final PoolObjectState<Item> state;
+        if (instance instanceof FixedObjectPool<Item> fixed) {
+            try {
+                state = fixed.borrowBlocking().state();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        } else {
+            state = instance.tryBorrow();
+        }
+        Thread.yield();
+        sum.add(state.get().touch(1L));
+        instance.returning(state);
+    }
+
+    /**
+     * Starts {@link #threads} virtual threads that each borrow and return an object, and waits for all of them.
+     *
+     * @return the value to consume.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @Benchmark
+    public long borrowReturnVirtual() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    borrowReturn();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        return sum.sum();
+    }
+}
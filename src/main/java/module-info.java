@@ -19,5 +19,7 @@
  * @since 0.1.0
  */
 module org.overrun.pooling {
+    requires static jdk.jfr;
+
     exports org.overrun.pooling;
 }
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Borrows and returns objects in batches, one by one, for the pools that cannot batch the atomic operations.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class Batch {
+    private Batch() {
+    }
+
+    /**
+     * Checks the count of a batch borrow.
+     *
+     * @param n the count.
+     * @return {@code n}.
+     */
+    static int checkCount(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+        return n;
+    }
+
+    /**
+     * Borrows up to the given count of states one by one.
+     * <p>
+     * If {@code allOrNothing} is {@code true} and a borrow fails, or if a borrow throws,
+     * the states borrowed by this batch are returned.
+     *
+     * @param n            the count of the states.
+     * @param out          the collection to which the borrowed states are added.
+     * @param allOrNothing whether to borrow either {@code n} states or none.
+     * @param borrow       the function that borrows a state, or returns {@code null} if the pool is exhausted.
+     * @param returnAll    the function that returns the states.
+     * @param <S>          the type of the states.
+     * @return the count of the borrowed states.
+     */
+    static <S> int borrow(int n,
+                          Collection<? super S> out,
+                          boolean allOrNothing,
+                          Supplier<? extends S> borrow,
+                          Consumer<? super Collection<S>> returnAll) {
+        final var taken = new ArrayList<S>(checkCount(n));
+        try {
+            for (int i = 0; i < n; i++) {
+                final S state = borrow.get();
+                if (state == null) break;
+                taken.add(state);
+            }
+        } catch (Throwable e) {
+            returnAll.accept(taken);
+            throw e;
+        }
+        if (allOrNothing && taken.size() < n) {
+            returnAll.accept(taken);
+            return 0;
+        }
+        out.addAll(taken);
+        return taken.size();
+    }
+}
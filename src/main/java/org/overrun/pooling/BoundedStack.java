@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free bag of at most a fixed count of elements.
+ * <p>
+ * The elements are stored in an array, and the indices of the filled and the empty cells are kept in
+ * {@link IndexShards}, so neither adding nor removing allocates. An index is in exactly one of the shards
+ * at a time, so both share the same links.
+ *
+ * @param <E> the type of the elements.
+ * @author squid233
+ * @since 0.1.0
+ */
+final class BoundedStack<E> {
+    private final AtomicReferenceArray<E> items;
+    private final IndexShards filled;
+    private final IndexShards empty;
+
+    /**
+     * Creates an empty bag.
+     *
+     * @param capacity   the maximum count of the elements.
+     * @param shardCount the count of the shards, which is rounded up to a power of two.
+     */
+    BoundedStack(int capacity, int shardCount) {
+        final var links = new IndexLinks(capacity);
+        this.items = new AtomicReferenceArray<>(capacity);
+        this.filled = new IndexShards(shardCount, links);
+        this.empty = new IndexShards(shardCount, links);
+        for (int i = capacity - 1; i >= 0; i--) {
+            empty.push(i);
+        }
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @param e the element.
+     * @return {@code true} if the element has been added; {@code false} if this bag is full.
+     */
+    boolean offer(E e) {
+        final int index = empty.pop();
+        if (index == IndexStack.EMPTY) return false;
+        items.set(index, e);
+        filled.push(index);
+        return true;
+    }
+
+    /**
+     * Removes an element, preferring the one most recently added by the current thread.
+     *
+     * @return the element; or {@code null} if this bag is empty.
+     */
+    E poll() {
+        final int index = filled.pop();
+        if (index == IndexStack.EMPTY) return null;
+        final E e = items.get(index);
+        items.set(index, null);
+        empty.push(index);
+        return e;
+    }
+}
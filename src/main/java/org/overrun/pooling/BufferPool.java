@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A growable pool of fixed-size blocks of native memory.
+ * <p>
+ * The blocks are slices of large direct buffers called slabs. A slab is allocated only when all blocks are borrowed,
+ * so borrowing a block does not allocate native memory, and the blocks are striped like
+ * {@link StripedObjectPool}.
+ * <p>
+ * {@link #cleanup()} detaches the buffers from all blocks, after which {@link PooledBuffer#buffer()} throws.
+ * On Java 22 or later, the slabs are allocated in a shared {@code Arena}, and {@code cleanup()} frees them at once;
+ * on older versions, they are freed by the garbage collector once the buffers are unreachable. This pool must not be
+ * used after it has been cleaned up.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class BufferPool implements Pool<PooledBuffer> {
+    /**
+     * The default size of a slab in bytes.
+     */
+    public static final int DEFAULT_SLAB_SIZE = 64 * 1024;
+    private final int blockSize;
+    private final int slabSize;
+    private final SlotPool<PoolObjectState<PooledBuffer>, PooledBuffer> states;
+    private final ReentrantLock slabLock = new ReentrantLock();
+    private final SlabAllocator slabs;
+    private ByteBuffer slab;
+    private int slabCount;
+    private boolean closed;
+
+    /**
+     * Creates a buffer pool with the given block size, slab size and configuration.
+     * <p>
+     * This pool supports metrics and deferred reset.
+     *
+     * @param blockSize the size of each block in bytes.
+     * @param slabSize  the size of each slab in bytes, which is rounded down to a multiple of the block size.
+     * @param config    the configuration of this pool.
+     */
+    public BufferPool(int blockSize, int slabSize, PoolConfig config) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        if (slabSize < blockSize) {
+            throw new IllegalArgumentException("slabSize must not be less than blockSize: " + slabSize);
+        }
+        config.require("BufferPool", false, false, false, false, false, false);
+        this.blockSize = blockSize;
+        this.slabSize = slabSize - slabSize % blockSize;
+        this.slabs = new SlabAllocator(this.slabSize);
+        this.states = new SlotPool<>(this::allocate,
+            PoolObjectState::new,
+            IndexShards.defaultCount(),
+            this.slabSize / blockSize,
+            false,
+            config.metrics(),
+            config.reset(),
+            null,
+            null,
+            null);
+    }
+
+    /**
+     * Creates a buffer pool with the given block size and slab size.
+     *
+     * @param blockSize the size of each block in bytes.
+     * @param slabSize  the size of each slab in bytes, which is rounded down to a multiple of the block size.
+     */
+    public BufferPool(int blockSize, int slabSize) {
+        this(blockSize, slabSize, PoolConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a buffer pool with the given block size and a slab of {@value #DEFAULT_SLAB_SIZE} bytes,
+     * or a slab of one block if the block is larger.
+     *
+     * @param blockSize the size of each block in bytes.
+     */
+    public BufferPool(int blockSize) {
+        this(blockSize, Math.max(blockSize, DEFAULT_SLAB_SIZE));
+    }
+
+    /**
+     * Carves a block from the current slab, allocating a new slab if it is full.
+     *
+     * @return the block.
+     */
+    private PooledBuffer allocate() {
+        slabLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The BufferPool has been cleaned up");
+            }
+            if (slab == null || slab.remaining() < blockSize) {
+                slab = slabs.allocate();
+                slabCount++;
+            }
+            final int offset = slab.position();
+            slab.position(offset + blockSize);
+            return new PooledBuffer(slab.slice(offset, blockSize));
+        } finally {
+            slabLock.unlock();
+        }
+    }
+
+    /**
+     * {@return the size of each block in bytes}
+     */
+    public int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * {@return the count of the slabs allocated by this pool}
+     */
+    public int slabCount() {
+        slabLock.lock();
+        try {
+            return slabCount;
+        } finally {
+            slabLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        return states.hasRemaining();
+    }
+
+    @Override
+    public Result<PooledBuffer> borrow() {
+        return tryBorrow().result;
+    }
+
+    @Override
+    public PoolObjectState<PooledBuffer> tryBorrow() {
+        return states.borrow();
+    }
+
+    @Override
+    public int borrow(int n, Collection<? super PoolObjectState<PooledBuffer>> out, boolean allOrNothing) {
+        return Math.max(0, states.borrow(Batch.checkCount(n), out, allOrNothing));
+    }
+
+    /**
+     * {@return the hooks for the caches in front of this pool}
+     */
+    Recycler<PoolObjectState<PooledBuffer>> recycler() {
+        return states;
+    }
+
+    @Override
+    public void returning(PoolObjectState<PooledBuffer> state) {
+        states.release(state);
+    }
+
+    @Override
+    public void returnAll(Collection<? extends PoolObjectState<PooledBuffer>> states) {
+        this.states.releaseAll(states);
+    }
+
+    @Override
+    public void prewarm(int count) {
+        states.prewarm(count);
+    }
+
+    @Override
+    public CompletableFuture<Void> prewarmAsync(int count, Executor executor) {
+        return states.prewarmAsync(count, executor);
+    }
+
+    /**
+     * Detaches the buffers from all blocks and frees the slabs.
+     * <p>
+     * On Java 22 or later, the native memory of all slabs is freed here, and a buffer kept by a borrower throws
+     * {@link IllegalStateException} when accessed. On older versions, a direct buffer has no public way to free its
+     * memory, so the garbage collector frees each slab once it and the buffers sliced from it are unreachable.
+     */
+    @Override
+    public void cleanup() {
+        slabLock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            slab = null;
+            slabs.close();
+        } finally {
+            slabLock.unlock();
+        }
+        states.cleanup(PooledBuffer::release);
+    }
+}
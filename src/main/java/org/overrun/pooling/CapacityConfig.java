@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The capacity limits of a {@link KeyedObjectPool}.
+ * <p>
+ * The objects of all keys share a global budget of {@code maxTotal}. Each object takes one unit of the budget,
+ * or the weight of its key if a {@link Weigher} is given, such as the size of the buffers of the key in bytes.
+ *
+ * @param maxTotal       the maximum count, or total weight, of the objects of all keys.
+ * @param maxPerKey      the maximum count of the objects of each key.
+ * @param overflowPolicy what to do if a new object would exceed a limit.
+ * @param maxWait        the maximum time to wait with {@link OverflowPolicy#BLOCK}.
+ * @param weigher        the weigher of the keys; or {@code null} to count the objects.
+ * @author squid233
+ * @since 0.1.0
+ */
+public record CapacityConfig(int maxTotal,
+                             int maxPerKey,
+                             OverflowPolicy overflowPolicy,
+                             Duration maxWait,
+                             Weigher weigher) {
+    /**
+     * What to do if borrowing would create an object exceeding a limit.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public enum OverflowPolicy {
+        /**
+         * Fails immediately.
+         */
+        FAIL,
+        /**
+         * Evicts an idle object of another key if the total limit is exceeded, or waits up to {@link #maxWait()}
+         * for an object of the same key to be returned, or for the capacity to be freed by a return to another key
+         * or by eviction.
+         */
+        BLOCK,
+        /**
+         * Evicts the least-recently-used idle object of another key to make room for the new object,
+         * and fails if there is none or if the limit of the key itself is exceeded.
+         */
+        EVICT_IDLE,
+        /**
+         * Evicts idle objects of the coldest other keys to make room for the new object, and fails if there are
+         * none or if the limit of the key itself is exceeded.
+         * <p>
+         * The keys are ranked by the frequency of their borrows, which is counted for a sample of the borrows and
+         * halved after as many evictions as there are keys, but at least 64, like TinyLFU; a victim is chosen among
+         * a few random keys, and any idle object of it is evicted. Both take constant time, so this policy suits
+         * thousands of keys, where {@link #EVICT_IDLE} scans all idle objects.
+         */
+        EVICT_COLD
+    }
+
+    /**
+     * Returns the weight of the objects of a key.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    @FunctionalInterface
+    public interface Weigher {
+        /**
+         * Weighs the objects of the given key; called once for each key.
+         *
+         * @param key the key.
+         * @return the positive weight of each object of the key.
+         */
+        int weigh(Object key);
+    }
+
+    /**
+     * Creates capacity limits.
+     *
+     * @param maxTotal       the maximum count, or total weight, of the objects of all keys.
+     * @param maxPerKey      the maximum count of the objects of each key.
+     * @param overflowPolicy what to do if a new object would exceed a limit.
+     * @param maxWait        the maximum time to wait with {@link OverflowPolicy#BLOCK}.
+     * @param weigher        the weigher of the keys; or {@code null} to count the objects.
+     */
+    public CapacityConfig {
+        if (maxTotal <= 0) {
+            throw new IllegalArgumentException("maxTotal must be positive: " + maxTotal);
+        }
+        if (maxPerKey <= 0) {
+            throw new IllegalArgumentException("maxPerKey must be positive: " + maxPerKey);
+        }
+        Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        Objects.requireNonNull(maxWait, "maxWait");
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("maxWait must not be negative: " + maxWait);
+        }
+    }
+
+    /**
+     * Creates capacity limits that count the objects.
+     *
+     * @param maxTotal       the maximum count of the objects of all keys.
+     * @param maxPerKey      the maximum count of the objects of each key.
+     * @param overflowPolicy what to do if a new object would exceed a limit.
+     * @param maxWait        the maximum time to wait with {@link OverflowPolicy#BLOCK}.
+     */
+    public CapacityConfig(int maxTotal, int maxPerKey, OverflowPolicy overflowPolicy, Duration maxWait) {
+        this(maxTotal, maxPerKey, overflowPolicy, maxWait, null);
+    }
+
+    /**
+     * Creates capacity limits that fail immediately on overflow.
+     *
+     * @param maxTotal  the maximum count of the objects of all keys.
+     * @param maxPerKey the maximum count of the objects of each key.
+     */
+    public CapacityConfig(int maxTotal, int maxPerKey) {
+        this(maxTotal, maxPerKey, OverflowPolicy.FAIL, Duration.ZERO);
+    }
+
+    /**
+     * {@return a copy of these limits with the given weigher}
+     *
+     * @param weigher the weigher of the keys; or {@code null} to count the objects.
+     */
+    public CapacityConfig withWeigher(Weigher weigher) {
+        return new CapacityConfig(maxTotal, maxPerKey, overflowPolicy, maxWait, weigher);
+    }
+
+    /**
+     * {@return the weight of the objects of the given key}
+     *
+     * @param key the key.
+     * @throws IllegalArgumentException if the weight is not positive or exceeds {@code maxTotal}.
+     */
+    int weigh(Object key) {
+        if (weigher == null) return 1;
+        final int weight = weigher.weigh(key);
+        if (weight <= 0 || weight > maxTotal) {
+            throw new IllegalArgumentException("The weight of " + key + " must be in [1, " + maxTotal + "]: " + weight);
+        }
+        return weight;
+    }
+
+    long maxWaitNanos() {
+        try {
+            return maxWait.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics that count the events of a pool with {@link LongAdder}s.
+ * <p>
+ * The gauges are derived from the counters: the active objects are the borrowed objects that have not been returned,
+ * and the idle objects are the living objects that are not active. An object cached by {@link ThreadCachedPool}
+ * counts as active.
+ * <p>
+ * The latency histograms are recorded only if enabled, since measuring the latencies reads the clock
+ * on each borrow.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class CountingMetrics implements PoolMetrics {
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder returns = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder creations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder destructions = new LongAdder();
+    private final LatencyHistogram waitLatency;
+    private final LatencyHistogram resetLatency;
+    private final LatencyHistogram createLatency;
+
+    /**
+     * Creates counting metrics.
+     *
+     * @param recordLatency whether to record the latency histograms.
+     */
+    public CountingMetrics(boolean recordLatency) {
+        this.waitLatency = recordLatency ? new LatencyHistogram() : null;
+        this.resetLatency = recordLatency ? new LatencyHistogram() : null;
+        this.createLatency = recordLatency ? new LatencyHistogram() : null;
+    }
+
+    /**
+     * Creates counting metrics without the latency histograms.
+     */
+    public CountingMetrics() {
+        this(false);
+    }
+
+    @Override
+    public void onBorrow() {
+        borrows.increment();
+    }
+
+    @Override
+    public void onMiss() {
+        misses.increment();
+    }
+
+    @Override
+    public void onFailure() {
+        failures.increment();
+    }
+
+    @Override
+    public void onReturn() {
+        returns.increment();
+    }
+
+    @Override
+    public void onCreate(long nanos) {
+        creations.increment();
+        if (createLatency != null) {
+            createLatency.record(nanos);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        destructions.increment();
+    }
+
+    @Override
+    public void onReset(long nanos) {
+        resetLatency.record(nanos);
+    }
+
+    @Override
+    public void onWait(long nanos) {
+        waitLatency.record(nanos);
+    }
+
+    @Override
+    public boolean recordsLatency() {
+        return createLatency != null;
+    }
+
+    /**
+     * {@return the count of the successful borrows}
+     */
+    public long borrows() {
+        return borrows.sum();
+    }
+
+    /**
+     * {@return the count of the returns}
+     */
+    public long returns() {
+        return returns.sum();
+    }
+
+    /**
+     * {@return the count of the borrows that found no idle object}
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * {@return the count of the created objects}
+     */
+    public long creations() {
+        return creations.sum();
+    }
+
+    /**
+     * {@return the count of the failed borrows}
+     */
+    public long failures() {
+        return failures.sum();
+    }
+
+    /**
+     * {@return the count of the evicted or destroyed objects}
+     */
+    public long destructions() {
+        return destructions.sum();
+    }
+
+    /**
+     * {@return the count of the borrowed objects that have not been returned}
+     */
+    public long active() {
+        return Math.max(0L, borrows.sum() - returns.sum());
+    }
+
+    /**
+     * {@return the count of the idle objects}
+     */
+    public long idle() {
+        return Math.max(0L, creations.sum() - destructions.sum() - active());
+    }
+
+    /**
+     * {@return the latencies of the waiting borrows; or {@code null} if the latencies are not recorded}
+     */
+    public LatencyHistogram waitLatency() {
+        return waitLatency;
+    }
+
+    /**
+     * {@return the latencies of {@link Poolable#reset()}; or {@code null} if the latencies are not recorded}
+     */
+    public LatencyHistogram resetLatency() {
+        return resetLatency;
+    }
+
+    /**
+     * {@return the latencies of the constructor; or {@code null} if the latencies are not recorded}
+     */
+    public LatencyHistogram createLatency() {
+        return createLatency;
+    }
+}
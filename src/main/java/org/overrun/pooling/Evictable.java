@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A pool that can evict its idle objects.
+ * <p>
+ * The evicted objects are passed to the cleanup action of the pool. Eviction never blocks the borrowers.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public interface Evictable {
+    /**
+     * Runs an eviction pass.
+     *
+     * @return the count of the evicted objects.
+     */
+    int evict();
+
+    /**
+     * Runs {@link #evict()} periodically with the given executor.
+     * <p>
+     * An exception thrown by an eviction pass is passed to the uncaught exception handler
+     * and does not cancel the later passes.
+     *
+     * @param executor the executor.
+     * @param period   the period between the passes.
+     * @return the future that cancels the eviction.
+     */
+    default ScheduledFuture<?> scheduleEviction(ScheduledExecutorService executor, Duration period) {
+        return Evictor.schedule(executor, period, this::evict);
+    }
+
+    /**
+     * Runs {@link #evict()} periodically with a daemon thread shared by all pools.
+     *
+     * @param period the period between the passes.
+     * @return the future that cancels the eviction.
+     */
+    default ScheduledFuture<?> scheduleEviction(Duration period) {
+        return scheduleEviction(Evictor.EXECUTOR, period);
+    }
+}
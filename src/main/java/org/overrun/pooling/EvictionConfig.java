@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The configuration of idle eviction.
+ * <p>
+ * An eviction pass keeps at least {@code minIdle} idle objects, evicts the objects that have been idle
+ * for at least {@code idleTimeout}, and evicts more objects until at most {@code maxIdle} objects are idle.
+ *
+ * @param minIdle     the minimum count of the idle objects that are never evicted.
+ * @param maxIdle     the maximum count of the idle objects.
+ * @param idleTimeout the time after which an idle object can be evicted.
+ * @author squid233
+ * @since 0.1.0
+ */
+public record EvictionConfig(int minIdle, int maxIdle, Duration idleTimeout) {
+    /**
+     * Creates an eviction configuration.
+     *
+     * @param minIdle     the minimum count of the idle objects that are never evicted.
+     * @param maxIdle     the maximum count of the idle objects.
+     * @param idleTimeout the time after which an idle object can be evicted.
+     */
+    public EvictionConfig {
+        if (minIdle < 0) {
+            throw new IllegalArgumentException("minIdle must not be negative: " + minIdle);
+        }
+        if (maxIdle < minIdle) {
+            throw new IllegalArgumentException("maxIdle must not be less than minIdle: " + maxIdle + " < " + minIdle);
+        }
+        Objects.requireNonNull(idleTimeout, "idleTimeout");
+        if (idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("idleTimeout must not be negative: " + idleTimeout);
+        }
+    }
+
+    /**
+     * Creates an eviction configuration without the maximum count of the idle objects.
+     *
+     * @param minIdle     the minimum count of the idle objects that are never evicted.
+     * @param idleTimeout the time after which an idle object can be evicted.
+     */
+    public EvictionConfig(int minIdle, Duration idleTimeout) {
+        this(minIdle, Integer.MAX_VALUE, idleTimeout);
+    }
+
+    long idleTimeoutNanos() {
+        try {
+            return idleTimeout.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
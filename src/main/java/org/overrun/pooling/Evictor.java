@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the daemon thread shared by the pools for their periodic maintenance, such as
+ * {@link Evictable#scheduleEviction(Duration)}, {@link ObjectPool#scheduleResize(Duration)} and
+ * {@link LeakDetectable#scheduleLeakDetection(Duration)}. The thread is created when this class is first used.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class Evictor {
+    static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "pooling-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Evictor() {
+    }
+
+    /**
+     * Runs the given maintenance task periodically with the given executor.
+     * <p>
+     * An exception thrown by a run is passed to the uncaught exception handler and does not cancel the later runs.
+     *
+     * @param executor the executor.
+     * @param period   the period between the runs.
+     * @param task     the task.
+     * @return the future that cancels the task.
+     */
+    static ScheduledFuture<?> schedule(ScheduledExecutorService executor, Duration period, Runnable task) {
+        final long nanos = period.toNanos();
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -16,34 +16,98 @@
 
 package org.overrun.pooling;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * A fixed-size object pool that allows borrowing and returning object instances.
+ * <p>
+ * The idle objects and the empty slots are kept in two lock-free stacks, so borrowing and returning are
+ * constant-time. The objects are constructed lazily, by the thread that takes an empty slot when no object is idle,
+ * or ahead of time by {@link #prewarm(int)}.
+ * <p>
+ * By default, the most recently returned object is borrowed first, whose memory is likely still in the cache.
+ * With {@link ReuseOrder#FIFO}, the idle objects are kept in a lock-free queue instead and are used in turn.
+ * <p>
+ * When this pool is exhausted, {@link #borrowBlocking()}, {@link #borrow(Duration)} and {@link #borrowAsync()}
+ * wait in a FIFO queue, and a returned object is handed directly to the first waiter.
+ * <p>
+ * If a {@link LeakConfig} is configured, {@link #detectLeaks()} reports the objects that have been lent for too long,
+ * and reclaims them if the configuration specifies; the slot of a reclaimed object is filled again by the next borrow.
+ * <p>
+ * If a {@link ValidationConfig} is configured, the invalid objects are replaced on borrow or dropped on return,
+ * and {@link #validateIdle()} checks a batch of the idle objects in the background.
  *
  * @param <T> the type of the instances in this pool.
  * @author squid233
  * @since 0.1.0
  */
-public final class FixedObjectPool<T extends Poolable> implements Pool<T> {
+public final class FixedObjectPool<T extends Poolable> implements Pool<T>, LeakDetectable, Validatable {
     private final Consumer<T> cleanupAction;
     private final AtomicReferenceArray<PoolObjectState<T>> states;
     private final Supplier<T> constructor;
+    private final IndexLinks links;
+    private final IndexBag free;
+    private final IndexStack empty;
+    private final AtomicInteger constructed = new AtomicInteger();
+    private final WaitQueue<PoolObjectState<T>> waiters = new WaitQueue<>();
+    private final Result<T> exhausted;
+    private final PoolMetrics metrics;
+    private final boolean timed;
+    private final ResetConfig deferredReset;
+    private final LeakDetector leaks;
+    private final boolean validateOnBorrow;
+    private final boolean validateOnReturn;
+    private final int idleBatchSize;
 
     /**
-     * Creates a fixed-size object pool with the given size and cleanup action.
+     * Creates a fixed-size object pool with the given size, cleanup action and configuration.
+     * <p>
+     * This pool supports leak detection, validation, metrics, deferred reset and all reuse orders.
      *
      * @param size          the size of this pool.
      * @param constructor   the constructor of the objects.
-     * @param cleanupAction the cleanup action of this pool.
+     * @param cleanupAction the cleanup action of this pool, which also receives the invalid objects.
+     * @param config        the configuration of this pool.
      */
-    public FixedObjectPool(int size, Supplier<T> constructor, Consumer<T> cleanupAction) {
+    public FixedObjectPool(int size, Supplier<T> constructor, Consumer<T> cleanupAction, PoolConfig config) {
+        config.require("FixedObjectPool", false, false, false, true, true, true);
         this.cleanupAction = cleanupAction;
         this.states = new AtomicReferenceArray<>(size);
         this.constructor = constructor;
+        this.links = new IndexLinks(size);
+        this.free = config.order() == ReuseOrder.FIFO ? new IndexRing(links, size) : new IndexStack(links);
+        this.empty = IndexStack.full(links, size);
+        final var exception = new ArrayIndexOutOfBoundsException("FixedObjectPool has exceeded the limit: " + size);
+        exception.setStackTrace(new StackTraceElement[0]);
+        this.exhausted = new Result<>(null, exception);
+        this.metrics = config.metrics();
+        this.timed = metrics != null && metrics.recordsLatency();
+        this.deferredReset = config.reset();
+        this.leaks = LeakDetector.of(config.leaks());
+        final var validation = config.validation();
+        this.validateOnBorrow = validation != null && validation.onBorrow();
+        this.validateOnReturn = validation != null && validation.onReturn();
+        this.idleBatchSize = validation != null ? validation.idleBatchSize() : 0;
+    }
+
+    /**
+     * Creates a fixed-size object pool with the given size and cleanup action.
+     *
+     * @param size          the size of this pool.
+     * @param constructor   the constructor of the objects.
+     * @param cleanupAction the cleanup action of this pool.
+     */
+    public FixedObjectPool(int size, Supplier<T> constructor, Consumer<T> cleanupAction) {
+        this(size, constructor, cleanupAction, PoolConfig.DEFAULT);
     }
 
     /**
@@ -58,33 +122,690 @@ public final class FixedObjectPool<T extends Poolable> implements Pool<T> {
 
     @Override
     public boolean hasRemaining() {
-        for (int i = 0, c = states.length(); i < c; i++) {
-            if (!states.get(i).lent.get()) return true;
+        return !free.isEmpty() || !empty.isEmpty();
+    }
+
+    /**
+     * Takes an idle object and marks it as lent, or constructs an object in an empty slot if no object is idle.
+     *
+     * @param reset whether to reset an object that was constructed before, unless it has been reset when returned.
+     * @return the state; or {@code null} if this pool is exhausted.
+     */
+    private PoolObjectState<T> take(boolean reset) {
+        final int id = free.pop();
+        if (id == IndexStack.EMPTY) {
+            final int emptyId = empty.pop();
+            if (emptyId == IndexStack.EMPTY) return null;
+            if (metrics != null) metrics.onMiss();
+            final PoolObjectState<T> state;
+            try {
+                state = construct(emptyId);
+            } catch (Throwable e) {
+                empty.push(emptyId);
+                throw e;
+            }
+            constructed.incrementAndGet();
+            return state;
+        }
+        final var state = states.get(id);
+        state.setStatus(Slot.LENT);
+        if (reset) {
+            reuse(state);
+        }
+        return state;
+    }
+
+    /**
+     * Prepares the object of a reused state for its borrower: replaces it if it is invalid, or resets it unless
+     * it has been reset when returned.
+     *
+     * @param state the state, which is lent.
+     */
+    private void reuse(PoolObjectState<T> state) {
+        final T t = state.get();
+        if (validateOnBorrow && !t.isValid()) {
+            replace(state, t);
+        } else if (deferredReset == null) {
+            reset(t);
+        }
+    }
+
+    /**
+     * Replaces the invalid object of a borrowed state with a new object in the same slot.
+     * If the constructor fails, the slot is emptied and the exception is rethrown.
+     *
+     * @param state the state, which is lent.
+     * @param t     the invalid object.
+     */
+    private void replace(PoolObjectState<T> state, T t) {
+        final T replacement;
+        try {
+            replacement = newObject();
+        } catch (Throwable e) {
+            invalidate(state);
+            throw e;
+        }
+        state.set(replacement);
+        if (metrics != null) metrics.onDestroy();
+        if (cleanupAction != null) cleanupAction.accept(t);
+    }
+
+    /**
+     * Constructs the object of an empty slot.
+     *
+     * @param id the id of the slot, which is taken by the current thread.
+     * @return the state, which is lent.
+     */
+    private PoolObjectState<T> construct(int id) {
+        final var state = new PoolObjectState<>(id, newObject());
+        states.set(id, state);
+        return state;
+    }
+
+    /**
+     * Constructs a new object.
+     *
+     * @return the object.
+     */
+    private T newObject() {
+        final long start = timed ? System.nanoTime() : 0L;
+        final T t;
+        try {
+            t = Objects.requireNonNull(constructor.get());
+        } catch (Throwable e) {
+            if (metrics != null) metrics.onFailure();
+            throw e;
+        }
+        if (metrics != null) metrics.onCreate(timed ? System.nanoTime() - start : 0L);
+        return t;
+    }
+
+    private void reset(T t) {
+        if (timed) {
+            final long start = System.nanoTime();
+            t.reset();
+            metrics.onReset(System.nanoTime() - start);
+        } else {
+            t.reset();
+        }
+    }
+
+    private PoolObjectState<T> borrowed(PoolObjectState<T> state) {
+        if (metrics != null) {
+            if (state != null) metrics.onBorrow();
+            else metrics.onFailure();
+        }
+        if (leaks != null && state != null) leaks.onBorrow(state);
+        return state;
+    }
+
+    /**
+     * Hands the given state to the first waiter, or puts it back to the free stack.
+     *
+     * @param state the state, which is neither lent nor in the free stack.
+     */
+    private void release(PoolObjectState<T> state) {
+        while (true) {
+            if (!waiters.isEmpty()) {
+                state.setStatus(Slot.LENT);
+                if (waiters.offer(state)) return;
+                state.setStatus(Slot.IDLE);
+            }
+            free.push(state.id);
+            // a thread might have started waiting after the check above but before the push
+            if (waiters.isEmpty()) return;
+            state = take(false);
+            if (state == null) return;
+            state.setStatus(Slot.IDLE);
+        }
+    }
+
+    /**
+     * Pushes a chained run of free slots, and then hands the slots to the waiters if any.
+     *
+     * @param first the first id.
+     * @param last  the last id.
+     * @param count the count of the slots.
+     */
+    private void freeRun(int first, int last, int count) {
+        free.pushRun(first, last);
+        wake(count);
+    }
+
+    /**
+     * Hands up to the given count of objects to the waiters, which might have started waiting before
+     * the objects were pushed.
+     *
+     * @param count the count of the pushed objects or slots.
+     */
+    private void wake(int count) {
+        for (int i = 0; i < count && !waiters.isEmpty(); i++) {
+            final var state = take(false);
+            if (state == null) return;
+            passOn(state);
+        }
+    }
+
+    /**
+     * Puts back the chained slots taken by a batch that failed, each to the free or the empty stack.
+     *
+     * @param first the first id.
+     * @param count the count of the slots.
+     */
+    private void restore(int first, int count) {
+        int freeFirst = IndexStack.EMPTY;
+        int freeLast = IndexStack.EMPTY;
+        int emptyFirst = IndexStack.EMPTY;
+        int emptyLast = IndexStack.EMPTY;
+        for (int i = 0, id = first; i < count; i++) {
+            final int next = links.get(id) - 1;
+            final var state = states.get(id);
+            if (state == null) {
+                if (emptyFirst == IndexStack.EMPTY) emptyFirst = id;
+                else links.set(emptyLast, id + 1);
+                emptyLast = id;
+            } else {
+                state.setStatus(Slot.IDLE);
+                if (freeFirst == IndexStack.EMPTY) freeFirst = id;
+                else links.set(freeLast, id + 1);
+                freeLast = id;
+            }
+            id = next;
         }
-        return false;
+        if (emptyFirst != IndexStack.EMPTY) empty.pushRun(emptyFirst, emptyLast);
+        if (freeFirst != IndexStack.EMPTY) free.pushRun(freeFirst, freeLast);
+        wake(count);
+    }
+
+    /**
+     * Passes a state taken by a waiter that does not need it to the next waiter, or puts it back.
+     *
+     * @param state the lent state.
+     */
+    private void passOn(PoolObjectState<T> state) {
+        state.setStatus(Slot.IDLE);
+        release(state);
     }
 
     @Override
     public Result<T> borrow() {
-        for (int i = 0, c = states.length(); i < c; i++) {
-            if (states.get(i) == null) {
-                var state = new PoolObjectState<>(i, Objects.requireNonNull(constructor.get()));
-                states.set(i, state);
-                return new Result<>(state, null);
+        final var state = borrowed(take(true));
+        return state != null ? state.result : exhausted;
+    }
+
+    @Override
+    public PoolObjectState<T> tryBorrow() {
+        return borrowed(take(true));
+    }
+
+    /**
+     * Borrows up to the given count of objects from this pool, and adds their states to the given collection.
+     * <p>
+     * The idle objects and then the empty slots are taken in runs with a single CAS each, or one CAS per idle object
+     * with {@link ReuseOrder#FIFO}, and the empty slots are filled after all slots of the batch have been taken. A batch never waits.
+     *
+     * @param n            the count of the objects.
+     * @param out          the collection to which the states are added.
+     * @param allOrNothing {@code true} to borrow either {@code n} objects or none;
+     *                     {@code false} to borrow as many objects as available, up to {@code n}.
+     * @return the count of the borrowed objects.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    @Override
+    public int borrow(int n, Collection<? super PoolObjectState<T>> out, boolean allOrNothing) {
+        Batch.checkCount(n);
+        // the ids of the taken slots are chained through the links, from first to last
+        int first = IndexStack.EMPTY;
+        int last = IndexStack.EMPTY;
+        int count = 0;
+        IndexBag bag = free;
+        while (count < n) {
+            final long run = bag.popRun(n - count);
+            final int runCount = IndexStack.runCount(run);
+            if (runCount == 0) {
+                if (bag == empty) break;
+                bag = empty;
+                continue;
             }
-            var state = states.get(i);
-            if (state.lent.compareAndSet(false, true)) {
-                state.get().reset();
-                return new Result<>(state, null);
+            if (first == IndexStack.EMPTY) first = IndexStack.runTop(run);
+            else links.set(last, IndexStack.runTop(run) + 1);
+            // the run is already linked; find its last id
+            last = IndexStack.runTop(run);
+            for (int i = 1; i < runCount; i++) {
+                last = links.get(last) - 1;
             }
+            count += runCount;
+        }
+        if (count < n && (allOrNothing || count == 0)) {
+            restore(first, count);
+            if (metrics != null) metrics.onFailure();
+            return 0;
+        }
+        // fill the empty slots, and replace the invalid objects; a new state is already lent
+        for (int i = 0, id = first; i < count; i++, id = links.get(id) - 1) {
+            final var state = states.get(id);
+            if (state != null) {
+                final T t = state.get();
+                if (!validateOnBorrow || t.isValid()) continue;
+                destroy(state);
+                if (cleanupAction != null) cleanupAction.accept(t);
+            } else if (metrics != null) {
+                metrics.onMiss();
+            }
+            try {
+                construct(id);
+            } catch (Throwable e) {
+                restore(first, count);
+                throw e;
+            }
+            constructed.incrementAndGet();
+        }
+        for (int i = 0, id = first; i < count; i++) {
+            final int next = links.get(id) - 1;
+            final var state = states.get(id);
+            if (!state.isLent()) {
+                state.setStatus(Slot.LENT);
+                if (deferredReset == null) {
+                    reset(state.get());
+                }
+            }
+            if (metrics != null) metrics.onBorrow();
+            if (leaks != null) leaks.onBorrow(state);
+            out.add(state);
+            id = next;
+        }
+        if (count < n && metrics != null) metrics.onFailure();
+        return count;
+    }
+
+    private PoolObjectState<T> await(long nanos) throws InterruptedException {
+        if (waiters.isEmpty()) {
+            final var state = take(true);
+            if (state != null) return borrowed(state);
+        }
+        final long start = timed ? System.nanoTime() : 0L;
+        final var state = waiters.await(() -> take(false), this::passOn, nanos);
+        if (timed) metrics.onWait(System.nanoTime() - start);
+        if (state != null) {
+            reuse(state);
+        }
+        return borrowed(state);
+    }
+
+    private void prepare(PoolObjectState<T> state) {
+        reuse(state);
+        if (metrics != null) metrics.onBorrow();
+        if (leaks != null) leaks.onBorrow(state);
+    }
+
+    /**
+     * Borrows an object from this pool asynchronously.
+     * <p>
+     * If this pool is exhausted, the future waits in the same FIFO queue as {@link #borrowBlocking()},
+     * and it is completed in the default async executor when an object is returned; no thread is blocked or polling.
+     * A cancelled future gives up its place in the queue.
+     *
+     * @return the future of the state that holds the instance.
+     */
+    @Override
+    public CompletableFuture<PoolObjectState<T>> borrowAsync() {
+        if (waiters.isEmpty()) {
+            final var state = take(true);
+            if (state != null) return CompletableFuture.completedFuture(borrowed(state));
+        }
+        return waiters.awaitAsync(() -> take(false), this::passOn, this::prepare);
+    }
+
+    /**
+     * Borrows an object from this pool, waiting if necessary until an object is returned.
+     * <p>
+     * The waiting threads are served in FIFO order.
+     *
+     * @return the result that contains the instance.
+     * @throws InterruptedException if the current thread was interrupted while waiting.
+     */
+    public Result<T> borrowBlocking() throws InterruptedException {
+        return await(-1L).result;
+    }
+
+    /**
+     * Borrows an object from this pool, waiting if necessary up to the given time until an object is returned.
+     * <p>
+     * The waiting threads are served in FIFO order.
+     *
+     * @param timeout the maximum time to wait.
+     * @return the result that contains the instance; or {@link TimeoutException} if timed out.
+     * @throws InterruptedException if the current thread was interrupted while waiting.
+     */
+    public Result<T> borrow(Duration timeout) throws InterruptedException {
+        long nanos;
+        try {
+            nanos = Math.max(0L, timeout.toNanos());
+        } catch (ArithmeticException e) {
+            nanos = Long.MAX_VALUE;
+        }
+        final var state = await(nanos);
+        if (state == null) {
+            return new Result<>(null, new TimeoutException("FixedObjectPool borrow timed out after " + timeout));
         }
-        return new Result<>(null,
-            new ArrayIndexOutOfBoundsException("FixedObjectPool has exceeded the limit: " + states.length()));
+        return state.result;
     }
 
     @Override
     public void returning(PoolObjectState<T> state) {
-        state.lent.compareAndSet(true, false);
+        if (state.casStatus(Slot.LENT, Slot.IDLE)) {
+            if (metrics != null) metrics.onReturn();
+            if (leaks != null) leaks.onReturn(state);
+            if (validateOnReturn && !state.get().isValid()) {
+                invalidate(state);
+            } else if (deferredReset == null) {
+                release(state);
+            } else if (deferredReset.mode() == ResetConfig.Mode.ON_RETURN) {
+                resetAndRelease(state);
+            } else {
+                deferredReset.run(() -> resetAndRelease(state));
+            }
+        }
+    }
+
+    /**
+     * {@return the hooks for the caches in front of this pool}
+     */
+    Recycler<PoolObjectState<T>> recycler() {
+        return new Recycler<>() {
+            @Override
+            public boolean cache(PoolObjectState<T> state) {
+                if (!state.casStatus(Slot.LENT, Slot.IDLE)) return false;
+                if (metrics != null) metrics.onReturn();
+                if (leaks != null) leaks.onReturn(state);
+                if (validateOnReturn && !state.get().isValid()) {
+                    invalidate(state);
+                    return false;
+                }
+                if (deferredReset != null) {
+                    // a cache lends the object again at once, so the reset cannot wait for the executor
+                    try {
+                        reset(state.get());
+                    } catch (Throwable e) {
+                        discard(state);
+                        throw e;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void uncache(PoolObjectState<T> state) {
+                passOn(state);
+            }
+
+            @Override
+            public void reborrow(PoolObjectState<T> state) {
+                prepare(state);
+            }
+        };
+    }
+
+    /**
+     * Resets a returned state, which is neither lent nor free until it is released.
+     *
+     * @param state the state.
+     */
+    private void resetAndRelease(PoolObjectState<T> state) {
+        try {
+            reset(state.get());
+        } catch (Throwable e) {
+            discard(state);
+            throw e;
+        }
+        release(state);
+    }
+
+    /**
+     * Discards a returned state whose reset has failed, or a reclaimed state; its slot is filled again by the next
+     * borrow.
+     *
+     * @param state the state, which is neither lent nor free.
+     */
+    private void discard(PoolObjectState<T> state) {
+        destroy(state);
+        empty.push(state.id);
+        wake(1);
+    }
+
+    /**
+     * Discards the invalid object of a state, and passes it to the cleanup action.
+     *
+     * @param state the state, which is held by the current thread.
+     */
+    private void invalidate(PoolObjectState<T> state) {
+        final T t = state.get();
+        discard(state);
+        if (cleanupAction != null) cleanupAction.accept(t);
+    }
+
+    /**
+     * Removes a state from its slot, which is left to the caller.
+     *
+     * @param state the state, which is held by the current thread.
+     */
+    private void destroy(PoolObjectState<T> state) {
+        states.set(state.id, null);
+        constructed.decrementAndGet();
+        if (metrics != null) metrics.onDestroy();
+    }
+
+    /**
+     * Resets the chained run of returned states, and then frees them.
+     *
+     * @param first the first id.
+     * @param count the count of the states.
+     */
+    private void resetRun(int first, int count) {
+        int head = IndexStack.EMPTY;
+        int last = IndexStack.EMPTY;
+        int freed = 0;
+        Throwable failure = null;
+        for (int i = 0, id = first; i < count; i++) {
+            final int next = links.get(id) - 1;
+            final var state = states.get(id);
+            try {
+                reset(state.get());
+                if (head == IndexStack.EMPTY) head = id;
+                else links.set(last, id + 1);
+                last = id;
+                freed++;
+            } catch (RuntimeException | Error e) {
+                discard(state);
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+            id = next;
+        }
+        if (freed != 0) {
+            freeRun(head, last, freed);
+        }
+        if (failure instanceof RuntimeException e) throw e;
+        if (failure != null) throw (Error) failure;
+    }
+
+    /**
+     * Returns the given states to this pool.
+     * <p>
+     * If no thread is waiting, the states are pushed as a single run with one CAS; with a deferred reset,
+     * the run is reset before it is pushed.
+     *
+     * @param states the states that hold the object instances.
+     */
+    @Override
+    public void returnAll(Collection<? extends PoolObjectState<T>> states) {
+        int first = IndexStack.EMPTY;
+        int last = IndexStack.EMPTY;
+        int count = 0;
+        for (PoolObjectState<T> state : states) {
+            if (!state.casStatus(Slot.LENT, Slot.IDLE)) continue;
+            if (metrics != null) metrics.onReturn();
+            if (leaks != null) leaks.onReturn(state);
+            if (validateOnReturn && !state.get().isValid()) {
+                invalidate(state);
+                continue;
+            }
+            if (deferredReset == null && !waiters.isEmpty()) {
+                release(state);
+                continue;
+            }
+            if (first == IndexStack.EMPTY) first = state.id;
+            else links.set(last, state.id + 1);
+            last = state.id;
+            count++;
+        }
+        if (count == 0) return;
+        if (deferredReset == null) {
+            freeRun(first, last, count);
+        } else if (deferredReset.mode() == ResetConfig.Mode.ON_RETURN) {
+            resetRun(first, count);
+        } else {
+            final int head = first;
+            final int size = count;
+            deferredReset.run(() -> resetRun(head, size));
+        }
+    }
+
+    /**
+     * Constructs an object in an empty slot if fewer than the given count of objects have been constructed.
+     *
+     * @param count the count of the objects to reach.
+     * @return {@code true} if an object has been constructed.
+     */
+    private boolean prewarmOne(int count) {
+        int c;
+        do {
+            c = constructed.get();
+            if (c >= count) return false;
+        } while (!constructed.compareAndSet(c, c + 1));
+        final int id = empty.pop();
+        if (id == IndexStack.EMPTY) {
+            constructed.decrementAndGet();
+            return false;
+        }
+        final PoolObjectState<T> state;
+        try {
+            state = construct(id);
+        } catch (Throwable e) {
+            empty.push(id);
+            constructed.decrementAndGet();
+            throw e;
+        }
+        passOn(state);
+        return true;
+    }
+
+    /**
+     * Constructs objects in the empty slots until at least the given count of objects have been constructed.
+     * <p>
+     * The new objects are idle, or handed to the waiters.
+     *
+     * @param count the count of the objects, which is capped at the size of this pool.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     */
+    @Override
+    public void prewarm(int count) {
+        Prewarm.checkCount(count);
+        Prewarm.run(() -> prewarmOne(count));
+    }
+
+    /**
+     * Constructs the objects of all empty slots.
+     */
+    public void prewarm() {
+        prewarm(states.length());
+    }
+
+    /**
+     * Constructs objects in the empty slots in parallel, until at least the given count of objects have been
+     * constructed.
+     *
+     * @param count    the count of the objects, which is capped at the size of this pool.
+     * @param executor the executor that runs the constructors.
+     * @return the future that is completed when the objects are ready; or exceptionally if a constructor fails.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     */
+    @Override
+    public CompletableFuture<Void> prewarmAsync(int count, Executor executor) {
+        Prewarm.checkCount(count);
+        return Prewarm.parallel(Math.min(count, states.length()) - constructed.get(), () -> prewarmOne(count), executor);
+    }
+
+    /**
+     * Constructs the objects of all empty slots in parallel.
+     *
+     * @param executor the executor that runs the constructors.
+     * @return the future that is completed when the objects are ready; or exceptionally if a constructor fails.
+     */
+    public CompletableFuture<Void> prewarmAsync(Executor executor) {
+        return prewarmAsync(states.length(), executor);
+    }
+
+    /**
+     * Reports the objects that have been lent for too long, and reclaims them if the configuration specifies.
+     * <p>
+     * The borrower of a reclaimed object keeps its state and the object, but returning the state later is ignored;
+     * the slot is emptied and filled with a new object by the next borrow.
+     *
+     * @return the count of the reclaimed objects; or 0 if leak detection is disabled.
+     */
+    @Override
+    public int detectLeaks() {
+        if (leaks == null) return 0;
+        final long now = System.nanoTime();
+        int reclaimed = 0;
+        for (int i = 0, c = states.length(); i < c; i++) {
+            final var state = states.get(i);
+            if (!leaks.check(state, now)) continue;
+            if (metrics != null) metrics.onReturn();
+            discard(state);
+            reclaimed++;
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Validates a batch of the idle objects that would be borrowed next.
+     * <p>
+     * The batch is taken from the free stack, so the objects cannot be borrowed while they are checked;
+     * the valid objects are put back in the same order, and the slots of the invalid objects are filled again by
+     * the next borrows. With {@link ReuseOrder#FIFO}, the valid objects go to the back of the queue, so successive
+     * calls go around all idle objects.
+     *
+     * @return the count of the destroyed objects; or 0 if idle validation is disabled.
+     */
+    @Override
+    public int validateIdle() {
+        if (idleBatchSize == 0) return 0;
+        final long run = free.popRun(idleBatchSize);
+        int first = IndexStack.EMPTY;
+        int last = IndexStack.EMPTY;
+        int kept = 0;
+        int destroyed = 0;
+        int count = IndexStack.runCount(run);
+        for (int id = IndexStack.runTop(run); count > 0; count--) {
+            final int next = links.get(id) - 1;
+            final var state = states.get(id);
+            if (state.get().isValid()) {
+                if (first == IndexStack.EMPTY) first = id;
+                else links.set(last, id + 1);
+                last = id;
+                kept++;
+            } else {
+                invalidate(state);
+                destroyed++;
+            }
+            id = next;
+        }
+        if (kept != 0) {
+            freeRun(first, last, kept);
+        }
+        return destroyed;
     }
 
     @Override
@@ -92,6 +813,7 @@ public final class FixedObjectPool<T extends Poolable> implements Pool<T> {
         if (cleanupAction != null) {
             for (int i = 0, c = states.length(); i < c; i++) {
                 var state = states.get(i);
+                if (state == null) continue;
                 final T t = state.get();
                 if (t != null) {
                     cleanupAction.accept(t);
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * A lock-free collection of free indices, which are linked by {@link IndexLinks} when they are moved in runs.
+ * <p>
+ * The order of the indices is defined by the implementation.
+ *
+ * @author squid233
+ * @since 0.1.0
+ * @see IndexStack
+ * @see IndexRing
+ */
+interface IndexBag {
+    /**
+     * Adds the given index.
+     * <p>
+     * The index must not be in this bag.
+     *
+     * @param index the index.
+     */
+    void push(int index);
+
+    /**
+     * Adds a run of indices; the first index of the run is taken before the others.
+     * <p>
+     * The indices must not be in this bag, and each index of the run except the last one must be linked to
+     * the next one with {@link IndexLinks#set(int, int) links.set(index, next + 1)}.
+     *
+     * @param first the first index of the run.
+     * @param last  the last index of the run.
+     */
+    void pushRun(int first, int last);
+
+    /**
+     * Takes an index.
+     *
+     * @return the index; or {@link IndexStack#EMPTY} if this bag is empty.
+     */
+    int pop();
+
+    /**
+     * Takes a run of up to the given count of indices.
+     * <p>
+     * The indices of the run are linked in the order they were taken, and the link of the last index is undefined.
+     * Use {@link IndexStack#runCount(long)} and {@link IndexStack#runTop(long)} to decode the run.
+     *
+     * @param max the maximum count of the indices.
+     * @return the run; its count is 0 if this bag is empty.
+     */
+    long popRun(int max);
+
+    /**
+     * {@return {@code true} if this bag is empty}
+     */
+    boolean isEmpty();
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A growable table of the links of {@link IndexStack index stacks}.
+ * <p>
+ * An index is in at most one stack at a time, so the stacks over the same indices can share their links.
+ * The links are plain fields; they are published by the CAS on the head of the stacks.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class IndexLinks {
+    private final int shift;
+    private final int[] first;
+    private final AtomicReferenceArray<int[]> segments;
+
+    /**
+     * Creates links whose first segment holds the given count of indices.
+     *
+     * @param initialCapacity the initial capacity.
+     */
+    IndexLinks(int initialCapacity) {
+        this.shift = Segments.shift(initialCapacity);
+        this.first = new int[Segments.length(0, shift)];
+        this.segments = new AtomicReferenceArray<>(Segments.count(shift));
+        this.segments.set(0, first);
+    }
+
+    private int[] segment(int index) {
+        final int segment = Segments.segment(index, shift);
+        var array = segments.get(segment);
+        if (array == null) {
+            array = new int[Segments.length(segment, shift)];
+            if (!segments.compareAndSet(segment, null, array)) {
+                array = segments.get(segment);
+            }
+        }
+        return array;
+    }
+
+    int get(int index) {
+        if (index < first.length) return first[index];
+        return segment(index)[Segments.offset(index, shift)];
+    }
+
+    void set(int index, int link) {
+        if (index < first.length) {
+            first[index] = link;
+        } else {
+            segment(index)[Segments.offset(index, shift)] = link;
+        }
+    }
+}
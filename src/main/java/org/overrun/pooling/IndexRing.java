@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free FIFO queue of indices.
+ * <p>
+ * This is the array-based multi-producer multi-consumer queue by Dmitry Vyukov: each cell holds a sequence number
+ * that tells whether it is ready to be written or read at the current position, so {@link #push(int)} and
+ * {@link #pop()} are a single CAS on the tail or the head, without the ABA problem. The queue must be able to hold
+ * all indices that can be in it at the same time, so it never fills up.
+ * <p>
+ * A run is moved one index at a time, since the cells of a run are not contiguous in general.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class IndexRing implements IndexBag {
+    private final int mask;
+    private final int[] indices;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final IndexLinks links;
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param links    the links of the runs.
+     * @param capacity the maximum count of the indices in this queue, which is rounded up to a power of two.
+     */
+    IndexRing(IndexLinks links, int capacity) {
+        final int length = 1 << Segments.shift(capacity);
+        this.mask = length - 1;
+        this.indices = new int[length];
+        this.sequences = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            sequences.set(i, i);
+        }
+        this.links = links;
+    }
+
+    @Override
+    public void push(int index) {
+        long t;
+        int cell;
+        while (true) {
+            t = tail.get();
+            cell = (int) t & mask;
+            final long d = sequences.get(cell) - t;
+            if (d == 0) {
+                if (tail.compareAndSet(t, t + 1)) break;
+            } else if (d < 0) {
+                // a consumer has taken the cell but not released it yet
+                Thread.onSpinWait();
+            }
+        }
+        indices[cell] = index;
+        sequences.set(cell, t + 1);
+    }
+
+    @Override
+    public void pushRun(int first, int last) {
+        for (int index = first; ; ) {
+            // the link is read before the index is published, after which another thread might relink it
+            final int next = links.get(index) - 1;
+            push(index);
+            if (index == last) return;
+            index = next;
+        }
+    }
+
+    @Override
+    public int pop() {
+        long h;
+        int cell;
+        while (true) {
+            h = head.get();
+            cell = (int) h & mask;
+            final long d = sequences.get(cell) - (h + 1);
+            if (d == 0) {
+                if (head.compareAndSet(h, h + 1)) break;
+            } else if (d < 0) {
+                return IndexStack.EMPTY;
+            }
+        }
+        final int index = indices[cell];
+        sequences.set(cell, h + mask + 1);
+        return index;
+    }
+
+    @Override
+    public long popRun(int max) {
+        final int first = pop();
+        if (first == IndexStack.EMPTY) return 0L;
+        int last = first;
+        int count = 1;
+        while (count < max) {
+            final int index = pop();
+            if (index == IndexStack.EMPTY) break;
+            links.set(last, index + 1);
+            last = index;
+            count++;
+        }
+        return (long) count << 32 | first;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * A set of free indices split across several {@link IndexStack index stacks}.
+ * <p>
+ * Each thread pops from and pushes to the stack chosen by the hash of the thread,
+ * and steals from the other stacks only if its own stack is empty.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class IndexShards {
+    private final IndexStack[] stacks;
+    private final int mask;
+
+    /**
+     * Creates empty shards.
+     *
+     * @param shardCount the count of the shards, which is rounded up to a power of two.
+     * @param links      the links shared by the shards.
+     */
+    IndexShards(int shardCount, IndexLinks links) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        final int count = 1 << Segments.shift(shardCount);
+        this.stacks = new IndexStack[count];
+        for (int i = 0; i < count; i++) {
+            stacks[i] = new IndexStack(links);
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * {@return the default count of the shards, which is the count of the available processors}
+     */
+    static int defaultCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * {@return the hash of the current thread, which spreads the sequential thread ids evenly}
+     */
+    @SuppressWarnings("deprecation")
+    static int threadHash() {
+        // Fibonacci hashing
+        return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private int home() {
+        return threadHash() & mask;
+    }
+
+    /**
+     * Pops an index from the shard of the current thread, or from another shard if it is empty.
+     *
+     * @return the index; or {@link IndexStack#EMPTY} if all shards are empty.
+     */
+    int pop() {
+        final int home = home();
+        for (int i = 0; i <= mask; i++) {
+            final int index = stacks[(home + i) & mask].pop();
+            if (index != IndexStack.EMPTY) return index;
+        }
+        return IndexStack.EMPTY;
+    }
+
+    /**
+     * Pushes the given index to the shard of the current thread.
+     *
+     * @param index the index.
+     */
+    void push(int index) {
+        stacks[home()].push(index);
+    }
+
+    /**
+     * Pops a run of up to the given count of indices from the shard of the current thread,
+     * or from another shard if it is empty.
+     *
+     * @param max the maximum count of the indices.
+     * @return the run as {@link IndexStack#popRun(int)}; its count is 0 if all shards are empty.
+     */
+    long popRun(int max) {
+        final int home = home();
+        for (int i = 0; i <= mask; i++) {
+            final long run = stacks[(home + i) & mask].popRun(max);
+            if (IndexStack.runCount(run) != 0) return run;
+        }
+        return 0L;
+    }
+
+    /**
+     * Pushes a linked run of indices to the shard of the current thread.
+     *
+     * @param first the index that becomes the top.
+     * @param last  the last index of the run.
+     * @see IndexStack#pushRun(int, int)
+     */
+    void pushRun(int first, int last) {
+        stacks[home()].pushRun(first, last);
+    }
+
+    /**
+     * {@return {@code true} if all shards are empty}
+     */
+    boolean isEmpty() {
+        for (IndexStack stack : stacks) {
+            if (!stack.isEmpty()) return false;
+        }
+        return true;
+    }
+}
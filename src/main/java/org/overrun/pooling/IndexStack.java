@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free LIFO stack of indices.
+ * <p>
+ * The head is a stamped word that holds the top index and a modification count,
+ * so both {@link #push(int)} and {@link #pop()} are a single CAS without the ABA problem.
+ * The links may be shared with other stacks, as long as an index is in at most one of them.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class IndexStack implements IndexBag {
+    /**
+     * The value returned by {@link #pop()} if this stack is empty.
+     */
+    static final int EMPTY = -1;
+    /**
+     * The high 32 bits are the stamp, the low 32 bits are the top index plus 1, or 0 if empty.
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * The next index of each index, plus 1.
+     */
+    private final IndexLinks links;
+
+    /**
+     * Creates an empty stack with the given links.
+     *
+     * @param links the links.
+     */
+    IndexStack(IndexLinks links) {
+        this.links = links;
+    }
+
+    /**
+     * Creates an empty stack that initially holds indices in {@code [0, capacity)} without growing.
+     *
+     * @param capacity the initial capacity.
+     */
+    IndexStack(int capacity) {
+        this(new IndexLinks(capacity));
+    }
+
+    /**
+     * Creates a stack that holds indices in {@code [0, capacity)}, with 0 at the top.
+     *
+     * @param links    the links, which must hold at least {@code capacity} indices.
+     * @param capacity the capacity.
+     * @return the stack.
+     */
+    static IndexStack full(IndexLinks links, int capacity) {
+        final IndexStack stack = new IndexStack(links);
+        for (int i = 0; i < capacity; i++) {
+            stack.links.set(i, i + 2 > capacity ? 0 : i + 2);
+        }
+        stack.head.set(capacity > 0 ? 1 : 0);
+        return stack;
+    }
+
+    private static long next(long head, int top) {
+        return ((head >>> 32) + 1) << 32 | (top & 0xffffffffL);
+    }
+
+    /**
+     * Pushes the given index to this stack.
+     * <p>
+     * The index must not be in this stack.
+     *
+     * @param index the index.
+     */
+    @Override
+    public void push(int index) {
+        pushRun(index, index);
+    }
+
+    /**
+     * Pushes a run of indices to this stack with a single CAS.
+     * <p>
+     * The indices must not be in this stack, and each index of the run except the last one must be linked to
+     * the next one with {@link IndexLinks#set(int, int) links.set(index, next + 1)}.
+     *
+     * @param first the index that becomes the top.
+     * @param last  the last index of the run.
+     */
+    @Override
+    public void pushRun(int first, int last) {
+        long h;
+        do {
+            h = head.get();
+            links.set(last, (int) h);
+        } while (!head.compareAndSet(h, next(h, first + 1)));
+    }
+
+    /**
+     * Pops an index from this stack.
+     *
+     * @return the index; or {@link #EMPTY} if this stack is empty.
+     */
+    @Override
+    public int pop() {
+        long h;
+        int top;
+        do {
+            h = head.get();
+            top = (int) h;
+            if (top == 0) return EMPTY;
+        } while (!head.compareAndSet(h, next(h, links.get(top - 1))));
+        return top - 1;
+    }
+
+    /**
+     * Pops a run of up to the given count of indices from this stack with a single CAS.
+     * <p>
+     * The indices of the run are linked from the top, and the link of the last index is undefined.
+     * Use {@link #runCount(long)} and {@link #runTop(long)} to decode the run.
+     *
+     * @param max the maximum count of the indices.
+     * @return the run; its count is 0 if this stack is empty.
+     */
+    @Override
+    public long popRun(int max) {
+        long h;
+        int top;
+        int count;
+        int rest;
+        do {
+            h = head.get();
+            top = (int) h;
+            if (top == 0) return 0L;
+            // the links might be changed concurrently; the walk is bounded and validated by the CAS
+            count = 1;
+            rest = links.get(top - 1);
+            while (count < max && rest != 0) {
+                rest = links.get(rest - 1);
+                count++;
+            }
+        } while (!head.compareAndSet(h, next(h, rest)));
+        return (long) count << 32 | (top - 1);
+    }
+
+    /**
+     * {@return the count of the indices of the given run}
+     *
+     * @param run the run returned by {@link #popRun(int)}.
+     */
+    static int runCount(long run) {
+        return (int) (run >>> 32);
+    }
+
+    /**
+     * {@return the top index of the given run}
+     *
+     * @param run the run returned by {@link #popRun(int)}.
+     */
+    static int runTop(long run) {
+        return (int) run;
+    }
+
+    /**
+     * {@return {@code true} if this stack is empty}
+     */
+    @Override
+    public boolean isEmpty() {
+        return (int) head.get() == 0;
+    }
+}
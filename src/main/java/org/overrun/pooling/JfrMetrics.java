@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.Objects;
+
+/**
+ * Metrics that emit JDK Flight Recorder events.
+ * <p>
+ * The events are in the {@code Pooling} category and are named {@code org.overrun.pooling.*};
+ * they are enabled by default and can be disabled in the recording settings.
+ * The stack traces are not recorded.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class JfrMetrics implements PoolMetrics {
+    private final String pool;
+
+    /**
+     * Creates JFR metrics.
+     *
+     * @param pool the name of the pool, which is recorded in the events.
+     */
+    public JfrMetrics(String pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    @Category("Pooling")
+    @StackTrace(false)
+    abstract static class PoolEvent extends Event {
+        @Label("Pool")
+        String pool;
+    }
+
+    @Name("org.overrun.pooling.Borrow")
+    @Label("Pool Borrow")
+    static final class BorrowEvent extends PoolEvent {
+    }
+
+    @Name("org.overrun.pooling.Miss")
+    @Label("Pool Miss")
+    @Description("A borrow found no idle object")
+    static final class MissEvent extends PoolEvent {
+    }
+
+    @Name("org.overrun.pooling.Failure")
+    @Label("Pool Failure")
+    static final class FailureEvent extends PoolEvent {
+    }
+
+    @Name("org.overrun.pooling.Return")
+    @Label("Pool Return")
+    static final class ReturnEvent extends PoolEvent {
+    }
+
+    @Name("org.overrun.pooling.Create")
+    @Label("Pool Create")
+    static final class CreateEvent extends PoolEvent {
+        @Label("Construction Time")
+        @Timespan
+        long nanos;
+    }
+
+    @Name("org.overrun.pooling.Destroy")
+    @Label("Pool Destroy")
+    static final class DestroyEvent extends PoolEvent {
+    }
+
+    @Name("org.overrun.pooling.Reset")
+    @Label("Pool Reset")
+    static final class ResetEvent extends PoolEvent {
+        @Label("Reset Time")
+        @Timespan
+        long nanos;
+    }
+
+    @Name("org.overrun.pooling.Wait")
+    @Label("Pool Wait")
+    static final class WaitEvent extends PoolEvent {
+        @Label("Wait Time")
+        @Timespan
+        long nanos;
+    }
+
+    @Override
+    public void onBorrow() {
+        final var event = new BorrowEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onMiss() {
+        final var event = new MissEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onFailure() {
+        final var event = new FailureEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onReturn() {
+        final var event = new ReturnEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onCreate(long nanos) {
+        final var event = new CreateEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        final var event = new DestroyEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onReset(long nanos) {
+        final var event = new ResetEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onWait(long nanos) {
+        final var event = new WaitEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean recordsLatency() {
+        return true;
+    }
+}
@@ -16,21 +16,158 @@
 
 package org.overrun.pooling;
 
-import java.util.*;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
  * A growable keyed object pool that allows borrowing and returning object instances.
+ * <p>
+ * The objects of each key are kept in their own lock-free sub-pool, which is striped like
+ * {@link StripedObjectPool}, and the sub-pools are stored in a {@link ConcurrentHashMap}.
+ * Borrowing objects with different keys never contends.
+ * <p>
+ * A sub-pool is never removed, even when its key has no object left, and each one allocates its own shards,
+ * so the set of the keys must be bounded; map an unbounded value to a bounded key first, such as a size to its
+ * size class.
+ * <p>
+ * If an {@link EvictionConfig} is configured, {@link #evict()} removes the idle objects of each key and passes
+ * them to the cleanup action; the counts in the configuration apply to each key.
+ * <p>
+ * If a {@link CapacityConfig} is configured, the count of the objects of all keys and of each key is limited,
+ * and a borrow that would exceed a limit is handled as the {@link CapacityConfig.OverflowPolicy} specifies.
+ * With {@link CapacityConfig.OverflowPolicy#EVICT_COLD}, the keys that are rarely borrowed give their idle objects
+ * to the keys that need room, so the pool can serve more keys than its budget of objects holds at once.
+ * <p>
+ * If a {@link LeakConfig} is configured, {@link #detectLeaks()} reports the objects that have been lent for too long,
+ * and reclaims them if the configuration specifies.
+ * <p>
+ * If a {@link ValidationConfig} is configured, the invalid objects are replaced on borrow or dropped on return,
+ * and {@link #validateIdle()} checks a batch of the idle objects of each key in the background.
  *
  * @author squid233
  * @since 0.1.0
  */
-public final class KeyedObjectPool<K, T extends Poolable> implements KeyedPool<K, T> {
+public final class KeyedObjectPool<K, T extends Poolable> implements KeyedPool<K, T>, Evictable, LeakDetectable, Validatable {
+    private static final int COLD_SAMPLES = 8;
+    /**
+     * The minimum count of evictions between two halvings of the frequencies. With only a few keys, halving after
+     * as many evictions as there are keys would age the frequencies faster than the sampled borrows count them.
+     */
+    private static final int MIN_EPOCH_EVICTIONS = 64;
     private final Consumer<T> cleanupAction;
-    private final Map<K, List<KeyedPoolObjectState<K, T>>> states;
-    private final Function<K, T> constructor;
-    private final int initialCapacity;
+    private final ConcurrentHashMap<K, SlotPool<KeyedPoolObjectState<K, T>, T>> states;
+    private final Function<K, SlotPool<KeyedPoolObjectState<K, T>, T>> subPoolFactory;
+    private final EvictionConfig eviction;
+    private final CapacityConfig capacity;
+    private final PoolMetrics metrics;
+    private final KeyedResult<K, T> exhausted;
+    private final Permits permits;
+    private final boolean evicting;
+    private final boolean evictCold;
+    /**
+     * The sub-pools in the order of creation, which are sampled by {@link CapacityConfig.OverflowPolicy#EVICT_COLD}
+     * and {@link CapacityConfig.OverflowPolicy#BLOCK}. Like the map, it only grows, since the key space is bounded.
+     */
+    private final SlotTable<SlotPool<KeyedPoolObjectState<K, T>, T>> keys;
+    private final AtomicInteger keyCount = new AtomicInteger();
+    private final AtomicInteger epoch = new AtomicInteger();
+    private final AtomicInteger coldEvictions = new AtomicInteger();
+    /**
+     * The count of the borrowers that wait with {@link CapacityConfig.OverflowPolicy#BLOCK} while their key is
+     * below its own limit, which only an eviction or a return to their key can wake.
+     */
+    private final AtomicInteger blocked = new AtomicInteger();
+
+    /**
+     * Creates a growable keyed object pool with the given shard count, initial capacity, cleanup action
+     * and configuration.
+     * <p>
+     * This pool supports eviction, capacity limits, leak detection, validation, metrics and deferred reset;
+     * the metrics receive the events of all keys.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool, which also receives the evicted and invalid objects.
+     * @param numMappings     the initial mapping count of the map.
+     * @param initialCapacity the initial capacity of each key.
+     * @param shardCount      the count of the shards of each key, which is rounded up to a power of two.
+     * @param config          the configuration of this pool.
+     */
+    public KeyedObjectPool(Function<K, T> constructor,
+                           Consumer<T> cleanupAction,
+                           int numMappings,
+                           int initialCapacity,
+                           int shardCount,
+                           PoolConfig config) {
+        config.require("KeyedObjectPool", true, true, false, true, true, false);
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        this.cleanupAction = cleanupAction;
+        this.states = new ConcurrentHashMap<>(numMappings);
+        final var eviction = config.eviction();
+        final var capacity = config.capacity();
+        final var metrics = config.metrics();
+        final var reset = config.reset();
+        final var leaks = LeakDetector.of(config.leaks());
+        final var validation = config.validation();
+        final boolean trackIdle = eviction != null
+            || (capacity != null && capacity.overflowPolicy() == CapacityConfig.OverflowPolicy.EVICT_IDLE);
+        final int maxPerKey = capacity != null ? capacity.maxPerKey() : Integer.MAX_VALUE;
+        final Permits permits = capacity != null ? new Permits(capacity.maxTotal()) : null;
+        final boolean waitable = capacity != null && capacity.overflowPolicy() == CapacityConfig.OverflowPolicy.BLOCK;
+        this.permits = permits;
+        this.evictCold = capacity != null && capacity.overflowPolicy() == CapacityConfig.OverflowPolicy.EVICT_COLD;
+        this.evicting = evictCold
+            || (capacity != null && capacity.overflowPolicy() == CapacityConfig.OverflowPolicy.EVICT_IDLE);
+        this.keys = evictCold || waitable ? new SlotTable<>(numMappings) : null;
+        this.subPoolFactory = key -> {
+            final var subPool = new SlotPool<>(() -> constructor.apply(key),
+                (id, object) -> new KeyedPoolObjectState<>(key, id, object),
+                shardCount,
+                initialCapacity,
+                trackIdle,
+                maxPerKey,
+                permits,
+                capacity != null ? capacity.weigh(key) : 1,
+                waitable,
+                metrics,
+                reset,
+                leaks,
+                validation,
+                cleanupAction);
+            if (keys != null) {
+                // the mapping function runs once for each key
+                keys.set(keyCount.getAndIncrement(), subPool);
+            }
+            return subPool;
+        };
+        this.eviction = eviction;
+        this.capacity = capacity;
+        this.metrics = metrics;
+        final var exception = new IllegalStateException("KeyedObjectPool has exceeded the limit");
+        exception.setStackTrace(new StackTraceElement[0]);
+        this.exhausted = new KeyedResult<>(null, exception);
+    }
+
+    /**
+     * Creates a growable keyed object pool with the given shard count, initial capacity and cleanup action.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool.
+     * @param numMappings     the initial mapping count of the map.
+     * @param initialCapacity the initial capacity of each key.
+     * @param shardCount      the count of the shards of each key, which is rounded up to a power of two.
+     */
+    public KeyedObjectPool(Function<K, T> constructor, Consumer<T> cleanupAction, int numMappings, int initialCapacity, int shardCount) {
+        this(constructor, cleanupAction, numMappings, initialCapacity, shardCount, PoolConfig.DEFAULT);
+    }
 
     /**
      * Creates a growable keyed object pool with the given initial capacity and cleanup action.
@@ -38,13 +175,10 @@ public final class KeyedObjectPool<K, T extends Poolable> implements KeyedPool<K
      * @param constructor     the constructor of the objects.
      * @param cleanupAction   the cleanup action of this pool.
      * @param numMappings     the initial mapping count of the map.
-     * @param initialCapacity the initial capacity of the lists.
+     * @param initialCapacity the initial capacity of each key.
      */
     public KeyedObjectPool(Function<K, T> constructor, Consumer<T> cleanupAction, int numMappings, int initialCapacity) {
-        this.cleanupAction = cleanupAction;
-        this.states = Collections.synchronizedMap(new HashMap<>((int) (numMappings / 0.75)));
-        this.constructor = constructor;
-        this.initialCapacity = initialCapacity;
+        this(constructor, cleanupAction, numMappings, initialCapacity, IndexShards.defaultCount());
     }
 
     /**
@@ -52,7 +186,7 @@ public final class KeyedObjectPool<K, T extends Poolable> implements KeyedPool<K
      *
      * @param constructor     the constructor of the objects.
      * @param numMappings     the initial mapping count of the map.
-     * @param initialCapacity the initial capacity of the lists.
+     * @param initialCapacity the initial capacity of each key.
      */
     public KeyedObjectPool(Function<K, T> constructor, int numMappings, int initialCapacity) {
         this(constructor, null, numMappings, initialCapacity);
@@ -67,46 +201,380 @@ public final class KeyedObjectPool<K, T extends Poolable> implements KeyedPool<K
         this(constructor, 12, 10);
     }
 
+    private SlotPool<KeyedPoolObjectState<K, T>, T> subPool(K key) {
+        final var subPool = states.get(key);
+        return subPool != null ? subPool : states.computeIfAbsent(key, subPoolFactory);
+    }
+
     @Override
     public boolean hasRemaining(K key) {
-        final var list = states.get(key);
-        if (list == null) return false;
-        for (var state : list) {
-            if (!state.lent.get()) return true;
-        }
-        return false;
+        final var subPool = states.get(key);
+        return subPool != null && subPool.hasRemaining();
     }
 
+    /**
+     * Borrows an object with the given key from this pool.
+     * <p>
+     * If a new object would exceed the capacity limits, the overflow policy is applied;
+     * with {@link CapacityConfig.OverflowPolicy#BLOCK} this method evicts an idle object of another key if any,
+     * or waits, and it fails if the current thread is interrupted while waiting, with the interrupt status set.
+     *
+     * @param key the key.
+     * @return the result that contains the instance; or {@link Throwable} if this pool has exceeded the limit.
+     */
     @Override
     public KeyedResult<K, T> borrow(K key) {
-        final var list = states.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>(initialCapacity)));
-        for (var state : list) {
-            if (state.lent.compareAndSet(false, true)) {
-                state.get().reset();
-                return new KeyedResult<>(state, null);
+        final var state = tryBorrow(key);
+        return state != null ? state.result : exhausted;
+    }
+
+    /**
+     * Borrows an object with the given key from this pool without creating a result.
+     * <p>
+     * The overflow policy is applied as in {@link #borrow(Object)}.
+     *
+     * @param key the key.
+     * @return the state that holds the instance; or {@code null} if this pool has exceeded the limit.
+     */
+    @Override
+    public KeyedPoolObjectState<K, T> tryBorrow(K key) {
+        final var subPool = subPool(key);
+        if (evictCold) touch(subPool);
+        final var state = subPool.borrow();
+        if (state != null || capacity == null) return state;
+        final var overflowed = overflow(subPool);
+        if (overflowed == null && metrics != null) metrics.onFailure();
+        return overflowed;
+    }
+
+    private KeyedPoolObjectState<K, T> overflow(SlotPool<KeyedPoolObjectState<K, T>, T> subPool) {
+        return switch (capacity.overflowPolicy()) {
+            case FAIL -> null;
+            case BLOCK -> {
+                final var evicted = borrowEvicting(subPool);
+                if (evicted != null) yield evicted;
+                final boolean global = !subPool.isFull();
+                if (global) blocked.incrementAndGet();
+                try {
+                    // the returns to other keys made idle since the eviction above are freed for this borrower
+                    yield subPool.await(capacity.maxWaitNanos());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    yield null;
+                } finally {
+                    if (global) blocked.decrementAndGet();
+                }
+            }
+            case EVICT_IDLE, EVICT_COLD -> borrowEvicting(subPool);
+        };
+    }
+
+    /**
+     * Borrows an object with the given key from this pool asynchronously.
+     * <p>
+     * With {@link CapacityConfig.OverflowPolicy#BLOCK}, an idle object of another key is evicted if any,
+     * or the future waits in the same FIFO queue as the blocking borrows and is completed when an object is returned
+     * or capacity is freed;
+     * it completes exceptionally with {@link java.util.concurrent.TimeoutException} after
+     * {@link CapacityConfig#maxWait()}. The other overflow policies complete the future immediately.
+     *
+     * @param key the key.
+     * @return the future of the state that holds the instance.
+     */
+    @Override
+    public CompletableFuture<KeyedPoolObjectState<K, T>> borrowAsync(K key) {
+        final var subPool = subPool(key);
+        if (evictCold) touch(subPool);
+        final var state = subPool.borrow();
+        if (state != null) return CompletableFuture.completedFuture(state);
+        if (capacity != null && capacity.overflowPolicy() == CapacityConfig.OverflowPolicy.BLOCK) {
+            final var evicted = borrowEvicting(subPool);
+            if (evicted != null) return CompletableFuture.completedFuture(evicted);
+            final var future = subPool.awaitAsync();
+            if (!subPool.isFull()) {
+                blocked.incrementAndGet();
+                future.whenComplete((s, e) -> blocked.decrementAndGet());
+            }
+            return future.orTimeout(capacity.maxWaitNanos(), TimeUnit.NANOSECONDS);
+        }
+        final var overflowed = capacity != null ? overflow(subPool) : null;
+        if (overflowed != null) return CompletableFuture.completedFuture(overflowed);
+        if (metrics != null) metrics.onFailure();
+        return CompletableFuture.failedFuture(exhausted.throwable());
+    }
+
+    private KeyedPoolObjectState<K, T> borrowEvicting(SlotPool<KeyedPoolObjectState<K, T>, T> subPool) {
+        // another thread may take the freed capacity, so try a few times
+        for (int i = 0; i < 3 && !subPool.isFull(); i++) {
+            if (!makeRoom(subPool, subPool.weight())) return null;
+            final var state = subPool.borrow();
+            if (state != null) return state;
+        }
+        return null;
+    }
+
+    /**
+     * Evicts the idle objects of other keys until the budget has room for the given weight.
+     * <p>
+     * With {@link CapacityConfig.OverflowPolicy#BLOCK}, the frequencies of the keys are not counted, so the victims
+     * are the idle objects of any sampled keys.
+     *
+     * @param exclude the sub-pool of the borrowing key.
+     * @param weight  the weight to make room for.
+     * @return {@code true} if the budget has room; {@code false} if no other key has an idle object.
+     */
+    private boolean makeRoom(SlotPool<KeyedPoolObjectState<K, T>, T> exclude, long weight) {
+        // the budget might be partly free already
+        long need = weight - (permits.max() - permits.count());
+        while (need > 0) {
+            final int freed = evicting && !evictCold ? evictLeastRecentlyUsed(exclude) : evictColdest(exclude);
+            if (freed == 0) return false;
+            need -= freed;
+        }
+        return true;
+    }
+
+    /**
+     * Counts a borrow of the given sub-pool for {@link CapacityConfig.OverflowPolicy#EVICT_COLD};
+     * only one in eight borrows is counted, so that the borrows of a hot key rarely write the shared counter.
+     *
+     * @param subPool the sub-pool.
+     */
+    private void touch(SlotPool<KeyedPoolObjectState<K, T>, T> subPool) {
+        if ((ThreadLocalRandom.current().nextInt() & 7) == 0) {
+            subPool.touch(epoch.get());
+        }
+    }
+
+    /**
+     * Evicts an idle object of the least frequently borrowed key among a random sample of the other keys,
+     * or among all other keys if the sample has no idle object.
+     *
+     * @param exclude the sub-pool of the borrowing key.
+     * @return the weight of the evicted object; or 0 if no other key has an idle object.
+     */
+    private int evictColdest(SlotPool<KeyedPoolObjectState<K, T>, T> exclude) {
+        // another thread may take the idle object, so try a few times
+        for (int attempt = 0; attempt < 3; attempt++) {
+            final int count = keyCount.get();
+            final int now = epoch.get();
+            final int start = ThreadLocalRandom.current().nextInt(count);
+            SlotPool<KeyedPoolObjectState<K, T>, T> victim = null;
+            int coldest = Integer.MAX_VALUE;
+            for (int i = 0, samples = COLD_SAMPLES; i < count && (i < samples || victim == null); i++) {
+                final var subPool = keys.get((start + i) % count);
+                if (subPool == null || subPool == exclude || !subPool.hasRemaining()) continue;
+                final int frequency = subPool.frequency(now);
+                if (frequency < coldest) {
+                    victim = subPool;
+                    coldest = frequency;
+                }
+            }
+            if (victim == null) return 0;
+            final T t = victim.evictAny();
+            if (t != null) {
+                // the frequencies are halved after as many evictions as there are keys, but at least 64
+                if (evictCold && coldEvictions.incrementAndGet() % Math.max(MIN_EPOCH_EVICTIONS, count) == 0) {
+                    epoch.incrementAndGet();
+                }
+                if (cleanupAction != null) {
+                    cleanupAction.accept(t);
+                }
+                return victim.weight();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Evicts the idle object of another key that has been idle for the longest time.
+     *
+     * @param exclude the sub-pool of the borrowing key.
+     * @return the weight of the evicted object; or 0 if no other key has an idle object.
+     */
+    private int evictLeastRecentlyUsed(SlotPool<KeyedPoolObjectState<K, T>, T> exclude) {
+        while (true) {
+            SlotPool<KeyedPoolObjectState<K, T>, T> owner = null;
+            KeyedPoolObjectState<K, T> oldest = null;
+            for (var subPool : states.values()) {
+                if (subPool == exclude) continue;
+                final var state = subPool.leastRecentlyUsed();
+                if (state != null && (oldest == null || state.idleSince - oldest.idleSince < 0)) {
+                    owner = subPool;
+                    oldest = state;
+                }
+            }
+            if (owner == null) return 0;
+            final T t = owner.evictIdle(oldest);
+            if (t != null) {
+                if (cleanupAction != null) {
+                    cleanupAction.accept(t);
+                }
+                return owner.weight();
             }
         }
-        final var state = new KeyedPoolObjectState<>(key, list.size(), Objects.requireNonNull(constructor.apply(key)));
-        list.add(state);
-        return new KeyedResult<>(state, null);
+    }
+
+    /**
+     * Borrows up to the given count of objects with the given key from this pool,
+     * and adds their states to the given collection.
+     * <p>
+     * A batch never waits. With {@link CapacityConfig.OverflowPolicy#EVICT_IDLE} or
+     * {@link CapacityConfig.OverflowPolicy#EVICT_COLD}, the idle objects of other keys are evicted to make room for
+     * the batch; with the other overflow policies, only the objects within the capacity limits are borrowed.
+     *
+     * @param key          the key.
+     * @param n            the count of the objects.
+     * @param out          the collection to which the states are added.
+     * @param allOrNothing {@code true} to borrow either {@code n} objects or none;
+     *                     {@code false} to borrow as many objects as available, up to {@code n}.
+     * @return the count of the borrowed objects.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    @Override
+    public int borrow(K key, int n, Collection<? super KeyedPoolObjectState<K, T>> out, boolean allOrNothing) {
+        final var subPool = subPool(key);
+        if (evictCold) touch(subPool);
+        int borrowed = subPool.borrow(Batch.checkCount(n), out, allOrNothing);
+        if (evicting) {
+            if (allOrNothing) {
+                // another thread may take the freed capacity, so try a few times
+                for (int i = 0; i < 3 && borrowed < 0 && !subPool.isFull(); i++) {
+                    if (!makeRoom(subPool, (long) -borrowed * subPool.weight())) break;
+                    borrowed = subPool.borrow(n, out, true);
+                }
+            } else {
+                while (borrowed < n) {
+                    final var state = borrowEvicting(subPool);
+                    if (state == null) break;
+                    out.add(state);
+                    borrowed++;
+                }
+            }
+        }
+        if (borrowed < n && metrics != null) metrics.onFailure();
+        return Math.max(0, borrowed);
     }
 
     @Override
     public void returning(KeyedPoolObjectState<K, T> state) {
-        state.lent.compareAndSet(true, false);
+        final var subPool = states.get(state.key);
+        subPool.release(state);
+        if (blocked.get() > 0) freeForBlocked(subPool, 1);
+    }
+
+    @Override
+    public void prewarm(K key, int count) {
+        subPool(key).prewarm(count);
+    }
+
+    @Override
+    public CompletableFuture<Void> prewarmAsync(K key, int count, Executor executor) {
+        return subPool(key).prewarmAsync(count, executor);
+    }
+
+    @Override
+    public void returnAll(Collection<? extends KeyedPoolObjectState<K, T>> states) {
+        SlotPool<KeyedPoolObjectState<K, T>, T> subPool = null;
+        for (var state : states) {
+            final var owner = this.states.get(state.key);
+            if (subPool == null) {
+                subPool = owner;
+            } else if (owner != subPool) {
+                // different keys
+                for (var s : states) {
+                    returning(s);
+                }
+                return;
+            }
+        }
+        if (subPool != null) {
+            subPool.releaseAll(states);
+            if (blocked.get() > 0) freeForBlocked(subPool, states.size());
+        }
+    }
+
+    /**
+     * Evicts the idle objects of the given sub-pool for the borrowers of other keys that wait with
+     * {@link CapacityConfig.OverflowPolicy#BLOCK}, which a return to this key does not wake.
+     *
+     * @param subPool  the sub-pool to which objects have been returned.
+     * @param returned the count of the returned objects.
+     */
+    private void freeForBlocked(SlotPool<KeyedPoolObjectState<K, T>, T> subPool, int returned) {
+        final int count = Math.min(returned, blocked.get());
+        int freed = 0;
+        for (int i = 0; i < count; i++) {
+            // a waiter of this key has taken the object already
+            final T t = subPool.evictAny();
+            if (t == null) break;
+            if (cleanupAction != null) {
+                cleanupAction.accept(t);
+            }
+            freed++;
+        }
+        signalFreed(freed);
+    }
+
+    /**
+     * Evicts the idle objects of each key as the eviction configuration of this pool specifies.
+     *
+     * @return the count of the evicted objects; or 0 if eviction is disabled.
+     */
+    @Override
+    public int evict() {
+        if (eviction == null) return 0;
+        int evicted = 0;
+        for (var subPool : states.values()) {
+            evicted += subPool.evict(eviction, cleanupAction);
+        }
+        signalFreed(evicted);
+        return evicted;
+    }
+
+    @Override
+    public int detectLeaks() {
+        int reclaimed = 0;
+        for (var subPool : states.values()) {
+            reclaimed += subPool.detectLeaks();
+        }
+        signalFreed(reclaimed);
+        return reclaimed;
+    }
+
+    @Override
+    public int validateIdle() {
+        int destroyed = 0;
+        for (var subPool : states.values()) {
+            destroyed += subPool.validateIdle();
+        }
+        signalFreed(destroyed);
+        return destroyed;
+    }
+
+    /**
+     * Wakes up the waiters of any key to use the capacity freed by removing objects.
+     *
+     * @param freed the count of the removed objects.
+     */
+    private void signalFreed(int freed) {
+        if (freed > 0 && capacity != null && capacity.overflowPolicy() == CapacityConfig.OverflowPolicy.BLOCK) {
+            int signals = freed;
+            for (var subPool : states.values()) {
+                while (signals > 0 && subPool.signal()) {
+                    signals--;
+                }
+                if (signals == 0) break;
+            }
+        }
     }
 
     @Override
     public void cleanup() {
         if (cleanupAction != null) {
-            states.values().forEach(list -> {
-                for (var state : list) {
-                    final T t = state.get();
-                    if (t != null) {
-                        cleanupAction.accept(t);
-                    }
-                }
-            });
+            for (var subPool : states.values()) {
+                subPool.cleanup(cleanupAction);
+            }
         }
     }
 }
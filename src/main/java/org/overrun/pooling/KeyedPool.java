@@ -16,6 +16,14 @@
 
 package org.overrun.pooling;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
 /**
  * A keyed object pool.
  *
@@ -34,12 +42,186 @@ public interface KeyedPool<K, T extends Poolable> {
 
     /**
      * Borrows an object with the given key from this pool.
+     * <p>
+     * A successful result is cached in its state and a failed result is shared by this pool,
+     * so this method does not allocate in steady state.
      *
      * @param key the key.
      * @return the result that contains the instance; or {@link Throwable} if this pool has exceeded the limit.
      */
     KeyedResult<K, T> borrow(K key);
 
+    /**
+     * Borrows an object with the given key from this pool without creating a result.
+     * <p>
+     * The default implementation takes the state of {@link #borrow(Object)}.
+     *
+     * @param key the key.
+     * @return the state that holds the instance; or {@code null} if this pool has exceeded the limit.
+     */
+    default KeyedPoolObjectState<K, T> tryBorrow(K key) {
+        return borrow(key).state();
+    }
+
+    /**
+     * Borrows an object with the given key from this pool as a lease, which returns the object when closed.
+     * <p>
+     * A closed lease ignores further closes, so a stale lease never returns an object borrowed by another thread.
+     *
+     * @param key the key.
+     * @return the lease; or {@code null} if this pool has exceeded the limit.
+     * @see Lease
+     */
+    default Lease<T> lease(K key) {
+        return Lease.of(this, tryBorrow(key));
+    }
+
+    /**
+     * Wraps a state borrowed from this pool, such as by a blocking or a batch borrow, in a lease.
+     * The state must then be returned only through the lease.
+     *
+     * @param state the borrowed state; may be {@code null}.
+     * @return the lease; or {@code null} if {@code state} is {@code null}.
+     */
+    default Lease<T> lease(KeyedPoolObjectState<K, T> state) {
+        return Lease.of(this, state);
+    }
+
+    /**
+     * Borrows an object with the given key from this pool asynchronously.
+     * <p>
+     * A pool that can wait completes the future in the default async executor of {@link CompletableFuture}
+     * when an object is returned, without blocking or polling in any thread.
+     * The default implementation completes the future immediately, exceptionally if {@link #borrow(Object)} fails.
+     *
+     * @param key the key.
+     * @return the future of the state that holds the instance.
+     */
+    default CompletableFuture<KeyedPoolObjectState<K, T>> borrowAsync(K key) {
+        final KeyedResult<K, T> result = borrow(key);
+        return result.successful() ?
+            CompletableFuture.completedFuture(result.state()) :
+            CompletableFuture.failedFuture(result.throwable());
+    }
+
+    /**
+     * Borrows an object with the given key asynchronously, applies the given function to it,
+     * and returns it to this pool.
+     * <p>
+     * The function runs in the current thread if an object is available, or in the thread that completes the borrow.
+     *
+     * @param key      the key.
+     * @param function the function.
+     * @param <R>      the type of the result.
+     * @return the future of the result of the function.
+     * @see #borrowAsync(Object)
+     */
+    default <R> CompletableFuture<R> withPooled(K key, Function<? super T, ? extends R> function) {
+        return PooledTask.apply(borrowAsync(key), this::returning, function, null);
+    }
+
+    /**
+     * Borrows an object with the given key asynchronously, applies the given function to it in the given executor,
+     * and returns it to this pool.
+     *
+     * @param key      the key.
+     * @param function the function.
+     * @param executor the executor that runs the function.
+     * @param <R>      the type of the result.
+     * @return the future of the result of the function.
+     * @see #borrowAsync(Object)
+     */
+    default <R> CompletableFuture<R> withPooled(K key, Function<? super T, ? extends R> function, Executor executor) {
+        return PooledTask.apply(borrowAsync(key), this::returning, function, executor);
+    }
+
+    /**
+     * Borrows up to the given count of objects with the given key from this pool,
+     * and adds their states to the given collection.
+     * <p>
+     * The pools backed by a lock-free free list take a run of idle objects with a single CAS instead of
+     * one CAS per object; the default implementation borrows the objects one by one. A batch never waits.
+     * If the constructor throws, the objects borrowed by the batch are returned and the exception is rethrown.
+     *
+     * @param key          the key.
+     * @param n            the count of the objects.
+     * @param out          the collection to which the states are added.
+     * @param allOrNothing {@code true} to borrow either {@code n} objects or none;
+     *                     {@code false} to borrow as many objects as available, up to {@code n}.
+     * @return the count of the borrowed objects.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    default int borrow(K key, int n, Collection<? super KeyedPoolObjectState<K, T>> out, boolean allOrNothing) {
+        return Batch.borrow(n, out, allOrNothing, () -> tryBorrow(key), this::returnAll);
+    }
+
+    /**
+     * Borrows the given count of objects with the given key from this pool, or none if not all of them are
+     * available, and adds their states to the given collection.
+     *
+     * @param key the key.
+     * @param n   the count of the objects.
+     * @param out the collection to which the states are added.
+     * @return {@code n}; or 0 if not all objects are available.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     * @see #borrow(Object, int, Collection, boolean)
+     */
+    default int borrow(K key, int n, Collection<? super KeyedPoolObjectState<K, T>> out) {
+        return borrow(key, n, out, true);
+    }
+
+    /**
+     * Creates objects with the given key ahead of time until this pool holds at least the given count of objects
+     * with the key, idle or lent, so that the borrowers do not pay for the construction.
+     * <p>
+     * The new objects are idle, or handed to the waiters. The default implementation borrows {@code count} objects
+     * as a batch, which creates the missing objects, and returns them.
+     *
+     * @param key   the key.
+     * @param count the count of the objects, which is capped at the capacity of this pool.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     */
+    default void prewarm(K key, int count) {
+        final List<KeyedPoolObjectState<K, T>> states = new ArrayList<>(Prewarm.checkCount(count));
+        try {
+            borrow(key, count, states, false);
+        } finally {
+            returnAll(states);
+        }
+    }
+
+    /**
+     * Creates objects with the given key ahead of time in the given executor until this pool holds at least
+     * the given count of objects with the key, idle or lent.
+     * <p>
+     * The pools that can create objects concurrently run the constructors in parallel, with one task per
+     * available processor; the default implementation runs {@link #prewarm(Object, int)} in a single task.
+     *
+     * @param key      the key.
+     * @param count    the count of the objects, which is capped at the capacity of this pool.
+     * @param executor the executor that runs the constructors.
+     * @return the future that is completed when the objects are ready; or exceptionally if a constructor fails.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     */
+    default CompletableFuture<Void> prewarmAsync(K key, int count, Executor executor) {
+        Prewarm.checkCount(count);
+        return CompletableFuture.runAsync(() -> prewarm(key, count), executor);
+    }
+
+    /**
+     * Creates objects with the given key ahead of time in the common fork-join pool until this pool holds
+     * at least the given count of objects with the key, idle or lent.
+     *
+     * @param key   the key.
+     * @param count the count of the objects, which is capped at the capacity of this pool.
+     * @return the future that is completed when the objects are ready; or exceptionally if a constructor fails.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     * @see #prewarmAsync(Object, int, Executor)
+     */
+    default CompletableFuture<Void> prewarmAsync(K key, int count) {
+        return prewarmAsync(key, count, ForkJoinPool.commonPool());
+    }
+
     /**
      * Returns the result to this pool.
      *
@@ -47,6 +229,20 @@ public interface KeyedPool<K, T extends Poolable> {
      */
     void returning(KeyedPoolObjectState<K, T> state);
 
+    /**
+     * Returns the given states to this pool.
+     * <p>
+     * The pools backed by a lock-free free list push the objects as a single run if they have the same key and
+     * no thread is waiting; the default implementation returns the objects one by one.
+     *
+     * @param states the states that hold the object instances, which may have different keys.
+     */
+    default void returnAll(Collection<? extends KeyedPoolObjectState<K, T>> states) {
+        for (KeyedPoolObjectState<K, T> state : states) {
+            returning(state);
+        }
+    }
+
     /**
      * Executes the cleanup action of this pool.
      */
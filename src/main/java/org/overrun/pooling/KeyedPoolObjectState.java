@@ -16,31 +16,21 @@
 
 package org.overrun.pooling;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
-
 /**
  * The state that holds the instance of the object.
  *
  * @author squid233
  * @since 0.1.0
  */
-public final class KeyedPoolObjectState<K, T extends Poolable> {
+public final class KeyedPoolObjectState<K, T extends Poolable> extends Slot<T> {
     final K key;
-    final int id;
-    private final AtomicReference<T> object;
-    final AtomicBoolean lent = new AtomicBoolean(true);
+    /**
+     * The successful result of this state, which is reused by each borrow.
+     */
+    final KeyedResult<K, T> result = new KeyedResult<>(this, null);
 
     KeyedPoolObjectState(K key, int id, T object) {
+        super(id, object);
         this.key = key;
-        this.id = id;
-        this.object = new AtomicReference<>(object);
-    }
-
-    /**
-     * {@return the instance of the object}
-     */
-    public T get() {
-        return object.get();
     }
 }
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+package org.overrun.pooling;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The configuration of leak detection, which finds the objects that are borrowed and never returned.
+ * <p>
+ * With leak detection, a pool records when each object is borrowed, and the borrow sites of a sample of the borrows.
+ * A detection pass, run by {@link LeakDetectable#detectLeaks()}, reports the objects that have been lent for longer
+ * than {@code maxLease}, and with {@code reclaim}, drops them from the pool so that their capacity is freed.
+ * A reclaimed object stays usable by its borrower, but returning it later is ignored, and it is not passed to
+ * the cleanup action. Without this configuration, a pool does not record anything.
+ * <p>
+ * A pool holds its objects strongly, so a handle that is dropped without being returned is found by its lease time,
+ * not by the garbage collector. An object held in the magazine of a {@link ThreadCachedPool} is not lent,
+ * and borrowing it from the magazine starts a new lease.
+ *
+ * @param sampleRate the fraction of the borrows whose stack trace is captured, in {@code [0, 1]}.
+ * @param maxLease   the time after which a lent object is reported.
+ * @param reclaim    whether to reclaim the reported objects.
+ * @param listener   the listener that receives the leaks.
+ * @author squid233
+ * @since 0.1.0
+ */
+public record LeakConfig(double sampleRate, Duration maxLease, boolean reclaim, Listener listener) {
+    /**
+     * An object that has been lent for too long.
+     *
+     * @param object     the object.
+     * @param leaseTime  the time for which the object has been lent.
+     * @param borrowSite the stack trace of the borrow; or {@code null} if the borrow was not sampled.
+     * @param reclaimed  whether the object has been dropped from the pool.
+     * @author squid233
+     * @since 0.1.0
+     */
+    public record Leak(Poolable object, Duration leaseTime, Throwable borrowSite, boolean reclaimed) {
+    }
+
+    /**
+     * Receives the leaks found by a detection pass, in the thread that runs the pass.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called for each leak.
+         *
+         * @param leak the leak.
+         */
+        void onLeak(Leak leak);
+    }
+
+    /**
+     * Creates a leak detection configuration.
+     *
+     * @param sampleRate the fraction of the borrows whose stack trace is captured, in {@code [0, 1]}.
+     * @param maxLease   the time after which a lent object is reported.
+     * @param reclaim    whether to reclaim the reported objects.
+     * @param listener   the listener that receives the leaks.
+     */
+    public LeakConfig {
+        if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+            throw new IllegalArgumentException("sampleRate must be in [0, 1]: " + sampleRate);
+        }
+        Objects.requireNonNull(maxLease, "maxLease");
+        if (maxLease.isNegative()) {
+            throw new IllegalArgumentException("maxLease must not be negative: " + maxLease);
+        }
+        Objects.requireNonNull(listener, "listener");
+    }
+
+    long maxLeaseNanos() {
+        try {
+            return maxLease.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
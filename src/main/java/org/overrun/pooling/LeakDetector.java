@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+package org.overrun.pooling;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records the leases of the slots of a pool, and finds the slots that have been lent for too long.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class LeakDetector {
+    private final LeakConfig config;
+    private final long maxLeaseNanos;
+
+    /**
+     * Creates a leak detector.
+     *
+     * @param config the leak detection configuration.
+     */
+    LeakDetector(LeakConfig config) {
+        this.config = config;
+        this.maxLeaseNanos = config.maxLeaseNanos();
+    }
+
+    /**
+     * Creates a leak detector if enabled.
+     *
+     * @param config the leak detection configuration; may be {@code null}.
+     * @return the leak detector; or {@code null} if {@code config} is {@code null}.
+     */
+    static LeakDetector of(LeakConfig config) {
+        return config != null ? new LeakDetector(config) : null;
+    }
+
+    private boolean sampled() {
+        final double rate = config.sampleRate();
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * Starts the lease of a borrowed slot.
+     *
+     * @param slot the slot, which is lent.
+     */
+    void onBorrow(Slot<?> slot) {
+        slot.borrowSite = sampled() ? new Throwable("Borrowed by " + Thread.currentThread().getName()) : null;
+        slot.lentSince = System.nanoTime();
+    }
+
+    /**
+     * Ends the lease of a returned slot.
+     *
+     * @param slot the slot, which is no longer lent.
+     */
+    void onReturn(Slot<?> slot) {
+        slot.lentSince = Slot.NOT_LENT;
+        slot.borrowSite = null;
+    }
+
+    /**
+     * Checks whether the given slot has been lent for too long, reports it, and takes it from its borrower
+     * if the configuration reclaims the leaks.
+     *
+     * @param slot the slot; may be {@code null}.
+     * @param now  the {@link System#nanoTime()} of the detection pass.
+     * @return {@code true} if the slot has been taken, and the pool must drop it and free its capacity.
+     */
+    boolean check(Slot<?> slot, long now) {
+        // the lease is read after the status; a slot borrowed again since has a newer lease
+        if (slot == null || !slot.isLent()) return false;
+        final long since = slot.lentSince;
+        if (since == Slot.NOT_LENT || since == Slot.RECLAIMED || since == slot.reportedLease
+            || now - since < maxLeaseNanos) return false;
+        final Poolable object = slot.get();
+        if (object == null) return false;
+        // the borrow site is written before the lease, so it belongs to the lease if the lease is unchanged
+        final Throwable borrowSite = slot.borrowSite;
+        if (slot.lentSince != since) return false;
+        boolean reclaimed = false;
+        if (config.reclaim()) {
+            // the lease is claimed first, so a new lease started since the check is never taken;
+            // a return that wins the status afterwards keeps its slot, and the claim is dropped
+            if (!slot.reclaimLease(since) || !slot.casStatus(Slot.LENT, Slot.HELD)) return false;
+            slot.borrowSite = null;
+            reclaimed = true;
+        } else {
+            // each lease is reported once
+            slot.reportedLease = since;
+        }
+        config.listener().onLeak(new LeakConfig.Leak(object, Duration.ofNanos(now - since), borrowSite, reclaimed));
+        return reclaimed;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+package org.overrun.pooling;
+
+/**
+ * A borrowed object that is returned to its pool when closed, for use in a try-with-resources statement.
+ * <p>
+ * A lease refers to the state of its object and records the generation of the state when the object was borrowed.
+ * Closing the lease advances the generation with a single CAS before returning the state, so a second close,
+ * or a close of a stale lease after the object has been borrowed again, is detected and ignored.
+ * A state that is borrowed through a lease must be returned only through the lease.
+ * <p>
+ * Each lease is a new object that holds the references and the stamp, while the state of the slot is reused.
+ * A caller that must not allocate per borrow should borrow and return the state directly.
+ *
+ * @param <T> the type of the instance.
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class Lease<T extends Poolable> implements AutoCloseable {
+    private final Object pool;
+    private final Slot<T> state;
+    private final int stamp;
+
+    private Lease(Object pool, Slot<T> state) {
+        this.pool = pool;
+        this.state = state;
+        this.stamp = state.generation();
+    }
+
+    /**
+     * Creates a lease of a state borrowed from the given pool.
+     *
+     * @param pool  the pool.
+     * @param state the borrowed state; may be {@code null}.
+     * @param <T>   the type of the instance.
+     * @return the lease; or {@code null} if {@code state} is {@code null}.
+     */
+    static <T extends Poolable> Lease<T> of(Pool<T> pool, PoolObjectState<T> state) {
+        return state != null ? new Lease<>(pool, state) : null;
+    }
+
+    /**
+     * Creates a lease of a state borrowed from the given keyed pool.
+     *
+     * @param pool  the keyed pool.
+     * @param state the borrowed state; may be {@code null}.
+     * @param <K>   the type of the keys.
+     * @param <T>   the type of the instance.
+     * @return the lease; or {@code null} if {@code state} is {@code null}.
+     */
+    static <K, T extends Poolable> Lease<T> of(KeyedPool<K, T> pool, KeyedPoolObjectState<K, T> state) {
+        return state != null ? new Lease<>(pool, state) : null;
+    }
+
+    /**
+     * {@return the instance of the object}
+     */
+    public T get() {
+        return state.get();
+    }
+
+    /**
+     * {@return {@code true} if this lease has not been closed}
+     */
+    public boolean isOpen() {
+        return state.generation() == stamp;
+    }
+
+    /**
+     * Returns the object to its pool, unless this lease has already been closed.
+     */
+    @Override
+    public void close() {
+        // kept small to be inlined on the exceptional path too, so that this lease does not escape
+        if (state.advanceGeneration(stamp)) returning(pool, state);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Poolable> void returning(Object pool, Slot<T> state) {
+        if (pool instanceof Pool<?> p) {
+            ((Pool<T>) p).returning((PoolObjectState<T>) state);
+        } else {
+            ((KeyedPool<Object, T>) pool).returning((KeyedPoolObjectState<Object, T>) state);
+        }
+    }
+}
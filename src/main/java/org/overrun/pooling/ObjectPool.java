@@ -16,24 +16,76 @@
 
 package org.overrun.pooling;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * A growable object pool that allows borrowing and returning object instances.
+ * <p>
+ * The free objects are kept in a lock-free stack, and the objects are stored in a table that grows
+ * without copying, so neither borrowing nor growing takes a lock.
+ * <p>
+ * If an {@link EvictionConfig} is configured, {@link #evict()} removes the idle objects and passes them to
+ * the cleanup action; it can be run periodically with {@link #scheduleEviction(Duration)}.
+ * <p>
+ * If a {@link SizingConfig} is configured, this pool observes its demand, and {@link #resize()} creates or evicts
+ * objects to follow it; it can be run periodically with {@link #scheduleResize(Duration)}.
+ * <p>
+ * If a {@link LeakConfig} is configured, {@link #detectLeaks()} reports the objects that have been lent for too long,
+ * and reclaims them if the configuration specifies.
+ * <p>
+ * If a {@link ValidationConfig} is configured, the invalid objects are replaced on borrow or dropped on return,
+ * and {@link #validateIdle()} checks a batch of the idle objects in the background.
  *
  * @param <T> the type of the instances in this pool.
  * @author squid233
  * @since 0.1.0
  */
-public final class ObjectPool<T extends Poolable> implements Pool<T> {
+public final class ObjectPool<T extends Poolable> implements Pool<T>, Evictable, LeakDetectable, Validatable {
     private final Consumer<T> cleanupAction;
-    private final List<PoolObjectState<T>> states;
-    private final Supplier<T> constructor;
+    private final SlotPool<PoolObjectState<T>, T> states;
+    private final EvictionConfig eviction;
+    private final SizingConfig sizing;
+    private final Sizer sizer;
+
+    /**
+     * Creates a growable object pool with the given initial capacity, cleanup action and configuration.
+     * <p>
+     * This pool supports eviction, adaptive sizing, leak detection, validation, metrics and deferred reset.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool, which also receives the evicted and invalid objects.
+     * @param initialCapacity the initial capacity of this pool.
+     * @param config          the configuration of this pool.
+     */
+    public ObjectPool(Supplier<T> constructor, Consumer<T> cleanupAction, int initialCapacity, PoolConfig config) {
+        config.require("ObjectPool", true, false, true, true, true, false);
+        this.cleanupAction = cleanupAction;
+        this.eviction = config.eviction();
+        this.sizing = config.sizing();
+        this.sizer = sizing != null ? new Sizer(sizing) : null;
+        PoolMetrics metrics = config.metrics();
+        if (sizer != null) {
+            // the sizer observes the demand through the metrics events
+            metrics = metrics != null ? PoolMetrics.compose(metrics, sizer) : sizer;
+        }
+        this.states = new SlotPool<>(constructor,
+            PoolObjectState::new,
+            1,
+            initialCapacity,
+            eviction != null || sizer != null,
+            metrics,
+            config.reset(),
+            LeakDetector.of(config.leaks()),
+            config.validation(),
+            cleanupAction);
+    }
 
     /**
      * Creates a growable object pool with the given initial capacity and cleanup action.
@@ -43,9 +95,7 @@ public final class ObjectPool<T extends Poolable> implements Pool<T> {
      * @param initialCapacity the initial capacity of this pool.
      */
     public ObjectPool(Supplier<T> constructor, Consumer<T> cleanupAction, int initialCapacity) {
-        this.cleanupAction = cleanupAction;
-        this.states = Collections.synchronizedList(new ArrayList<>(initialCapacity));
-        this.constructor = constructor;
+        this(constructor, cleanupAction, initialCapacity, PoolConfig.DEFAULT);
     }
 
     /**
@@ -69,39 +119,125 @@ public final class ObjectPool<T extends Poolable> implements Pool<T> {
 
     @Override
     public boolean hasRemaining() {
-        for (PoolObjectState<T> state : states) {
-            if (!state.lent.get()) return true;
-        }
-        return false;
+        return states.hasRemaining();
     }
 
     @Override
     public Result<T> borrow() {
-        for (var state : states) {
-            if (state.lent.compareAndSet(false, true)) {
-                state.get().reset();
-                return new Result<>(state, null);
-            }
-        }
-        final var state = new PoolObjectState<>(states.size(), Objects.requireNonNull(constructor.get()));
-        states.add(state);
-        return new Result<>(state, null);
+        return tryBorrow().result;
+    }
+
+    @Override
+    public PoolObjectState<T> tryBorrow() {
+        return states.borrow();
+    }
+
+    @Override
+    public int borrow(int n, Collection<? super PoolObjectState<T>> out, boolean allOrNothing) {
+        return Math.max(0, states.borrow(Batch.checkCount(n), out, allOrNothing));
+    }
+
+    /**
+     * {@return the hooks for the caches in front of this pool}
+     */
+    Recycler<PoolObjectState<T>> recycler() {
+        return states;
     }
 
     @Override
     public void returning(PoolObjectState<T> state) {
-        state.lent.compareAndSet(true, false);
+        states.release(state);
+    }
+
+    @Override
+    public void returnAll(Collection<? extends PoolObjectState<T>> states) {
+        this.states.releaseAll(states);
+    }
+
+    @Override
+    public void prewarm(int count) {
+        states.prewarm(count);
+    }
+
+    @Override
+    public CompletableFuture<Void> prewarmAsync(int count, Executor executor) {
+        return states.prewarmAsync(count, executor);
+    }
+
+    /**
+     * Evicts the idle objects as the eviction configuration of this pool specifies.
+     *
+     * @return the count of the evicted objects; or 0 if eviction is disabled.
+     */
+    @Override
+    public int evict() {
+        return eviction != null ? states.evict(eviction, cleanupAction) : 0;
+    }
+
+    /**
+     * Runs a sizing step as the sizing configuration of this pool specifies.
+     * <p>
+     * The step closes the sampling window that started at the previous step, computes the target size from the
+     * observed demand, and then creates objects up to the target size or evicts the idle objects above it.
+     * The decision is passed to the listener of the configuration after this pool is resized.
+     * The sizing steps must not run concurrently.
+     *
+     * @return the decision; or {@code null} if adaptive sizing is disabled.
+     */
+    public SizingConfig.Decision resize() {
+        if (sizer == null) return null;
+        final var decision = sizer.sample(states.size());
+        final int target = decision.target();
+        if (decision.size() < target) {
+            states.prewarm(target);
+        } else if (decision.size() > target) {
+            final int idle = Math.max(0, target - sizer.lent());
+            states.evict(new EvictionConfig(idle, idle, Duration.ofSeconds(Long.MAX_VALUE)), cleanupAction);
+        }
+        if (sizing.listener() != null) {
+            sizing.listener().onDecision(decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Runs {@link #resize()} periodically with the given executor; the period is the sampling window.
+     * <p>
+     * An exception thrown by a sizing step is passed to the uncaught exception handler
+     * and does not cancel the later steps.
+     *
+     * @param executor the executor.
+     * @param period   the period between the steps.
+     * @return the future that cancels the sizing.
+     */
+    public ScheduledFuture<?> scheduleResize(ScheduledExecutorService executor, Duration period) {
+        return Evictor.schedule(executor, period, this::resize);
+    }
+
+    /**
+     * Runs {@link #resize()} periodically with a daemon thread shared by all pools.
+     *
+     * @param period the period between the steps.
+     * @return the future that cancels the sizing.
+     */
+    public ScheduledFuture<?> scheduleResize(Duration period) {
+        return scheduleResize(Evictor.EXECUTOR, period);
+    }
+
+    @Override
+    public int detectLeaks() {
+        return states.detectLeaks();
+    }
+
+    @Override
+    public int validateIdle() {
+        return states.validateIdle();
     }
 
     @Override
     public void cleanup() {
         if (cleanupAction != null) {
-            for (PoolObjectState<T> state : states) {
-                final T t = state.get();
-                if (t != null) {
-                    cleanupAction.accept(t);
-                }
-            }
+            states.cleanup(cleanupAction);
         }
     }
 }
@@ -0,0 +1,366 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A growable object pool that keeps its objects in the partition where they were created.
+ * <p>
+ * Each borrowing thread belongs to the partition chosen by its locality id, which can be the NUMA node or the CPU
+ * of the thread if the layout of the machine is known. A borrow takes an idle object of its own partition first,
+ * steals an idle object of another partition only if its own partition has none, and creates a new object in its
+ * own partition only if no object is idle. A returned object always goes back to the partition that created it,
+ * so the objects stay in the memory of the threads that touched them first, whichever thread returns them.
+ * <p>
+ * Unlike {@link StripedObjectPool}, where a returned object moves to the shard of the returning thread,
+ * each partition is a separate {@link ObjectPool}-like pool. {@link #stats(int)} shows how often each partition
+ * borrows locally and steals.
+ * <p>
+ * If a {@link LeakConfig} is configured, {@link #detectLeaks()} reports the objects that have been lent for too long,
+ * and reclaims them if the configuration specifies.
+ * <p>
+ * If a {@link ValidationConfig} is configured, the invalid objects are replaced on borrow or dropped on return,
+ * and {@link #validateIdle()} checks a batch of the idle objects of each partition in the background.
+ *
+ * @param <T> the type of the instances in this pool.
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class PartitionedObjectPool<T extends Poolable> implements Pool<T>, LeakDetectable, Validatable {
+    private final Consumer<T> cleanupAction;
+    private final Partition<T>[] partitions;
+    private final IntSupplier locality;
+
+    /**
+     * The counters of a partition.
+     *
+     * @param hits      the count of the borrows that took an idle object of the partition.
+     * @param steals    the count of the borrows of the partition that took an idle object of another partition.
+     * @param stolen    the count of the idle objects of the partition taken by another partition.
+     * @param creations the count of the borrows of the partition that created a new object.
+     * @author squid233
+     * @since 0.1.0
+     */
+    public record PartitionStats(long hits, long steals, long stolen, long creations) {
+    }
+
+    private static final class Partition<T extends Poolable> {
+        final SlotPool<PoolObjectState<T>, T> states;
+        final LongAdder hits = new LongAdder();
+        final LongAdder steals = new LongAdder();
+        final LongAdder stolen = new LongAdder();
+        final LongAdder creations = new LongAdder();
+
+        Partition(SlotPool<PoolObjectState<T>, T> states) {
+            this.states = states;
+        }
+    }
+
+    /**
+     * Creates a partitioned object pool with the given partition count, initial capacity, cleanup action, locality
+     * and configuration.
+     * <p>
+     * This pool supports leak detection, validation, metrics and deferred reset; the metrics receive the events of
+     * all partitions.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool, which also receives the invalid objects.
+     * @param partitionCount  the count of the partitions.
+     * @param initialCapacity the initial capacity of each partition.
+     * @param locality        the function that returns the locality id of the current thread, which is mapped to
+     *                        a partition by its remainder.
+     * @param config          the configuration of this pool.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PartitionedObjectPool(Supplier<T> constructor,
+                                 Consumer<T> cleanupAction,
+                                 int partitionCount,
+                                 int initialCapacity,
+                                 IntSupplier locality,
+                                 PoolConfig config) {
+        config.require("PartitionedObjectPool", false, false, false, true, true, false);
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("partitionCount must be positive: " + partitionCount);
+        }
+        this.cleanupAction = cleanupAction;
+        this.locality = locality;
+        this.partitions = new Partition[partitionCount];
+        final var leaks = LeakDetector.of(config.leaks());
+        for (int i = 0; i < partitionCount; i++) {
+            final int partition = i;
+            partitions[i] = new Partition<>(new SlotPool<>(constructor,
+                (id, object) -> new PoolObjectState<>(partition, id, object),
+                1,
+                initialCapacity,
+                false,
+                config.metrics(),
+                config.reset(),
+                leaks,
+                config.validation(),
+                cleanupAction));
+        }
+    }
+
+    /**
+     * Creates a partitioned object pool with the given partition count, initial capacity, cleanup action
+     * and locality.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool.
+     * @param partitionCount  the count of the partitions.
+     * @param initialCapacity the initial capacity of each partition.
+     * @param locality        the function that returns the locality id of the current thread.
+     */
+    public PartitionedObjectPool(Supplier<T> constructor,
+                                 Consumer<T> cleanupAction,
+                                 int partitionCount,
+                                 int initialCapacity,
+                                 IntSupplier locality) {
+        this(constructor, cleanupAction, partitionCount, initialCapacity, locality, PoolConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a partitioned object pool with the given partition count, initial capacity and cleanup action,
+     * which chooses the partition by the hash of the current thread.
+     * <p>
+     * A virtual thread is hashed by itself, since its carrier thread is not visible.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool.
+     * @param partitionCount  the count of the partitions.
+     * @param initialCapacity the initial capacity of each partition.
+     */
+    public PartitionedObjectPool(Supplier<T> constructor, Consumer<T> cleanupAction, int partitionCount, int initialCapacity) {
+        this(constructor, cleanupAction, partitionCount, initialCapacity, IndexShards::threadHash);
+    }
+
+    /**
+     * Creates a partitioned object pool with the given partition count, which chooses the partition by the hash of
+     * the current thread.
+     *
+     * @param constructor    the constructor of the objects.
+     * @param partitionCount the count of the partitions.
+     */
+    public PartitionedObjectPool(Supplier<T> constructor, int partitionCount) {
+        this(constructor, null, partitionCount, 10);
+    }
+
+    /**
+     * {@return the partition of the current thread}
+     */
+    private int home() {
+        return Math.floorMod(locality.getAsInt(), partitions.length);
+    }
+
+    /**
+     * {@return the count of the partitions}
+     */
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * {@return the counters of the given partition}
+     * <p>
+     * A batch borrow is not counted.
+     *
+     * @param partition the partition.
+     */
+    public PartitionStats stats(int partition) {
+        final var p = partitions[partition];
+        return new PartitionStats(p.hits.sum(), p.steals.sum(), p.stolen.sum(), p.creations.sum());
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        for (var partition : partitions) {
+            if (partition.states.hasRemaining()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Result<T> borrow() {
+        return tryBorrow().result;
+    }
+
+    @Override
+    public PoolObjectState<T> tryBorrow() {
+        final int home = home();
+        final var local = partitions[home];
+        PoolObjectState<T> state = local.states.borrowIdle();
+        if (state != null) {
+            local.hits.increment();
+            return state;
+        }
+        for (int i = 1, n = partitions.length; i < n; i++) {
+            final var remote = partitions[(home + i) % n];
+            state = remote.states.borrowIdle();
+            if (state != null) {
+                local.steals.increment();
+                remote.stolen.increment();
+                return state;
+            }
+        }
+        state = local.states.borrowNew();
+        local.creations.increment();
+        return state;
+    }
+
+    /**
+     * Borrows up to the given count of objects from the partition of the current thread, and adds their states
+     * to the given collection.
+     * <p>
+     * A batch never steals; the missing objects are created in the partition of the current thread.
+     *
+     * @param n            the count of the objects.
+     * @param out          the collection to which the states are added.
+     * @param allOrNothing {@code true} to borrow either {@code n} objects or none;
+     *                     {@code false} to borrow as many objects as available, up to {@code n}.
+     * @return the count of the borrowed objects.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    @Override
+    public int borrow(int n, Collection<? super PoolObjectState<T>> out, boolean allOrNothing) {
+        return Math.max(0, partitions[home()].states.borrow(Batch.checkCount(n), out, allOrNothing));
+    }
+
+    /**
+     * {@return the hooks for the caches in front of this pool}
+     * Each state is passed to the partition that created it.
+     */
+    Recycler<PoolObjectState<T>> recycler() {
+        return new Recycler<>() {
+            @Override
+            public boolean cache(PoolObjectState<T> state) {
+                return partitions[state.partition].states.cache(state);
+            }
+
+            @Override
+            public void uncache(PoolObjectState<T> state) {
+                partitions[state.partition].states.uncache(state);
+            }
+
+            @Override
+            public void reborrow(PoolObjectState<T> state) {
+                partitions[state.partition].states.reborrow(state);
+            }
+        };
+    }
+
+    @Override
+    public void returning(PoolObjectState<T> state) {
+        partitions[state.partition].states.release(state);
+    }
+
+    /**
+     * Returns the given states to the partitions that created them.
+     * <p>
+     * If all states belong to the same partition, they are pushed as a single run with one CAS.
+     *
+     * @param states the states that hold the object instances.
+     */
+    @Override
+    public void returnAll(Collection<? extends PoolObjectState<T>> states) {
+        int partition = -1;
+        for (PoolObjectState<T> state : states) {
+            if (partition == -1) {
+                partition = state.partition;
+            } else if (state.partition != partition) {
+                for (PoolObjectState<T> s : states) {
+                    returning(s);
+                }
+                return;
+            }
+        }
+        if (partition != -1) {
+            partitions[partition].states.releaseAll(states);
+        }
+    }
+
+    /**
+     * {@return the share of the given count of objects that belongs to the given partition}
+     *
+     * @param count     the count of the objects.
+     * @param partition the partition.
+     */
+    private int share(int count, int partition) {
+        final int n = partitions.length;
+        return count / n + (partition < count % n ? 1 : 0);
+    }
+
+    /**
+     * Creates objects until this pool holds at least the given count of objects, split evenly across
+     * the partitions.
+     * <p>
+     * The objects are created by the current thread, so their memory might not be local to their partitions.
+     *
+     * @param count the count of the objects.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     */
+    @Override
+    public void prewarm(int count) {
+        Prewarm.checkCount(count);
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i].states.prewarm(share(count, i));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> prewarmAsync(int count, Executor executor) {
+        Prewarm.checkCount(count);
+        final var futures = new CompletableFuture<?>[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            futures[i] = partitions[i].states.prewarmAsync(share(count, i), executor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    @Override
+    public int detectLeaks() {
+        int reclaimed = 0;
+        for (var partition : partitions) {
+            reclaimed += partition.states.detectLeaks();
+        }
+        return reclaimed;
+    }
+
+    @Override
+    public int validateIdle() {
+        int destroyed = 0;
+        for (var partition : partitions) {
+            destroyed += partition.states.validateIdle();
+        }
+        return destroyed;
+    }
+
+    @Override
+    public void cleanup() {
+        if (cleanupAction != null) {
+            for (var partition : partitions) {
+                partition.states.cleanup(cleanupAction);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A non-blocking counter of the objects that a pool may create.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class Permits {
+    private final int max;
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Creates permits.
+     *
+     * @param max the maximum count of the permits.
+     */
+    Permits(int max) {
+        this.max = max;
+    }
+
+    /**
+     * Acquires a permit if available.
+     *
+     * @return {@code true} if acquired.
+     */
+    boolean tryAcquire() {
+        int c;
+        do {
+            c = count.get();
+            if (c >= max) return false;
+        } while (!count.compareAndSet(c, c + 1));
+        return true;
+    }
+
+    /**
+     * Acquires a permit if available and fewer than the given count of permits are acquired.
+     *
+     * @param limit the count of the acquired permits not to exceed.
+     * @return {@code true} if acquired.
+     */
+    boolean tryAcquireBelow(int limit) {
+        final int bound = Math.min(max, limit);
+        int c;
+        do {
+            c = count.get();
+            if (c >= bound) return false;
+        } while (!count.compareAndSet(c, c + 1));
+        return true;
+    }
+
+    /**
+     * Acquires up to the given count of permits with a single CAS.
+     *
+     * @param n   the count of the permits.
+     * @param all whether to acquire either all {@code n} permits or none.
+     * @return the count of the acquired permits.
+     */
+    int tryAcquire(int n, boolean all) {
+        int c;
+        int k;
+        do {
+            c = count.get();
+            k = Math.min(n, max - c);
+            if (k <= 0 || all && k < n) return 0;
+        } while (!count.compareAndSet(c, c + k));
+        return k;
+    }
+
+    /**
+     * Releases a permit.
+     */
+    void release() {
+        count.decrementAndGet();
+    }
+
+    /**
+     * Releases the given count of permits.
+     *
+     * @param n the count of the permits.
+     */
+    void release(int n) {
+        count.addAndGet(-n);
+    }
+
+    /**
+     * {@return the maximum count of the permits}
+     */
+    int max() {
+        return max;
+    }
+
+    /**
+     * {@return the count of the acquired permits}
+     */
+    int count() {
+        return count.get();
+    }
+}
@@ -16,6 +16,14 @@
 
 package org.overrun.pooling;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
 /**
  * An object pool.
  *
@@ -31,11 +39,173 @@ public interface Pool<T extends Poolable> {
 
     /**
      * Borrows an object from this pool.
+     * <p>
+     * A successful result is cached in its state and a failed result is shared by this pool,
+     * so this method does not allocate in steady state.
      *
      * @return the result that contains the instance; or {@link Throwable} if this pool has exceeded the limit.
      */
     Result<T> borrow();
 
+    /**
+     * Borrows an object from this pool without creating a result.
+     * <p>
+     * The default implementation takes the state of {@link #borrow()}.
+     *
+     * @return the state that holds the instance; or {@code null} if this pool has exceeded the limit.
+     */
+    default PoolObjectState<T> tryBorrow() {
+        return borrow().state();
+    }
+
+    /**
+     * Borrows an object from this pool as a lease, which returns the object when closed.
+     * <p>
+     * A closed lease ignores further closes, so a stale lease never returns an object borrowed by another thread.
+     *
+     * @return the lease; or {@code null} if this pool has exceeded the limit.
+     * @see Lease
+     */
+    default Lease<T> lease() {
+        return Lease.of(this, tryBorrow());
+    }
+
+    /**
+     * Wraps a state borrowed from this pool, such as by a blocking or a batch borrow, in a lease.
+     * The state must then be returned only through the lease.
+     *
+     * @param state the borrowed state; may be {@code null}.
+     * @return the lease; or {@code null} if {@code state} is {@code null}.
+     */
+    default Lease<T> lease(PoolObjectState<T> state) {
+        return Lease.of(this, state);
+    }
+
+    /**
+     * Borrows an object from this pool asynchronously.
+     * <p>
+     * A pool that can wait completes the future in the default async executor of {@link CompletableFuture}
+     * when an object is returned, without blocking or polling in any thread.
+     * The default implementation completes the future immediately, exceptionally if {@link #borrow()} fails.
+     *
+     * @return the future of the state that holds the instance.
+     */
+    default CompletableFuture<PoolObjectState<T>> borrowAsync() {
+        final Result<T> result = borrow();
+        return result.successful() ?
+            CompletableFuture.completedFuture(result.state()) :
+            CompletableFuture.failedFuture(result.throwable());
+    }
+
+    /**
+     * Borrows an object asynchronously, applies the given function to it, and returns it to this pool.
+     * <p>
+     * The function runs in the current thread if an object is available, or in the thread that completes the borrow.
+     *
+     * @param function the function.
+     * @param <R>      the type of the result.
+     * @return the future of the result of the function.
+     * @see #borrowAsync()
+     */
+    default <R> CompletableFuture<R> withPooled(Function<? super T, ? extends R> function) {
+        return PooledTask.apply(borrowAsync(), this::returning, function, null);
+    }
+
+    /**
+     * Borrows an object asynchronously, applies the given function to it in the given executor,
+     * and returns it to this pool.
+     *
+     * @param function the function.
+     * @param executor the executor that runs the function.
+     * @param <R>      the type of the result.
+     * @return the future of the result of the function.
+     * @see #borrowAsync()
+     */
+    default <R> CompletableFuture<R> withPooled(Function<? super T, ? extends R> function, Executor executor) {
+        return PooledTask.apply(borrowAsync(), this::returning, function, executor);
+    }
+
+    /**
+     * Borrows up to the given count of objects from this pool, and adds their states to the given collection.
+     * <p>
+     * The pools backed by a lock-free free list take a run of idle objects with a single CAS instead of
+     * one CAS per object; the default implementation borrows the objects one by one. A batch never waits.
+     * If the constructor throws, the objects borrowed by the batch are returned and the exception is rethrown.
+     *
+     * @param n            the count of the objects.
+     * @param out          the collection to which the states are added.
+     * @param allOrNothing {@code true} to borrow either {@code n} objects or none;
+     *                     {@code false} to borrow as many objects as available, up to {@code n}.
+     * @return the count of the borrowed objects.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    default int borrow(int n, Collection<? super PoolObjectState<T>> out, boolean allOrNothing) {
+        return Batch.borrow(n, out, allOrNothing, this::tryBorrow, this::returnAll);
+    }
+
+    /**
+     * Borrows the given count of objects from this pool, or none if not all of them are available,
+     * and adds their states to the given collection.
+     *
+     * @param n   the count of the objects.
+     * @param out the collection to which the states are added.
+     * @return {@code n}; or 0 if not all objects are available.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     * @see #borrow(int, Collection, boolean)
+     */
+    default int borrow(int n, Collection<? super PoolObjectState<T>> out) {
+        return borrow(n, out, true);
+    }
+
+    /**
+     * Creates objects ahead of time until this pool holds at least the given count of objects, idle or lent,
+     * so that the borrowers do not pay for the construction.
+     * <p>
+     * The new objects are idle, or handed to the waiters. The default implementation borrows {@code count} objects
+     * as a batch, which creates the missing objects, and returns them.
+     *
+     * @param count the count of the objects, which is capped at the capacity of this pool.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     */
+    default void prewarm(int count) {
+        final List<PoolObjectState<T>> states = new ArrayList<>(Prewarm.checkCount(count));
+        try {
+            borrow(count, states, false);
+        } finally {
+            returnAll(states);
+        }
+    }
+
+    /**
+     * Creates objects ahead of time in the given executor until this pool holds at least the given count of
+     * objects, idle or lent.
+     * <p>
+     * The pools that can create objects concurrently run the constructors in parallel, with one task per
+     * available processor; the default implementation runs {@link #prewarm(int)} in a single task.
+     *
+     * @param count    the count of the objects, which is capped at the capacity of this pool.
+     * @param executor the executor that runs the constructors.
+     * @return the future that is completed when the objects are ready; or exceptionally if a constructor fails.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     */
+    default CompletableFuture<Void> prewarmAsync(int count, Executor executor) {
+        Prewarm.checkCount(count);
+        return CompletableFuture.runAsync(() -> prewarm(count), executor);
+    }
+
+    /**
+     * Creates objects ahead of time in the common fork-join pool until this pool holds at least the given count of
+     * objects, idle or lent.
+     *
+     * @param count the count of the objects, which is capped at the capacity of this pool.
+     * @return the future that is completed when the objects are ready; or exceptionally if a constructor fails.
+     * @throws IllegalArgumentException if {@code count} is negative.
+     * @see #prewarmAsync(int, Executor)
+     */
+    default CompletableFuture<Void> prewarmAsync(int count) {
+        return prewarmAsync(count, ForkJoinPool.commonPool());
+    }
+
     /**
      * Returns the result to this pool.
      *
@@ -43,6 +213,20 @@ public interface Pool<T extends Poolable> {
      */
     void returning(PoolObjectState<T> state);
 
+    /**
+     * Returns the given states to this pool.
+     * <p>
+     * The pools backed by a lock-free free list push the objects as a single run if no thread is waiting;
+     * the default implementation returns the objects one by one.
+     *
+     * @param states the states that hold the object instances.
+     */
+    default void returnAll(Collection<? extends PoolObjectState<T>> states) {
+        for (PoolObjectState<T> state : states) {
+            returning(state);
+        }
+    }
+
     /**
      * Executes the cleanup action of this pool.
      */
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * The optional features of a pool.
+ * <p>
+ * Each component is {@code null} if the feature is disabled; start from {@link #DEFAULT} and enable the features
+ * with the {@code with} methods. A pool throws {@link IllegalArgumentException} if it is given a feature
+ * that it does not support.
+ *
+ * @param eviction   the eviction configuration; see {@link Evictable}.
+ * @param capacity   the capacity limits of a keyed pool.
+ * @param metrics    the metrics that receive the events of the pool.
+ * @param reset      the deferred reset configuration; the objects are reset on borrow if {@code null}.
+ * @param sizing     the adaptive sizing configuration; see {@link ObjectPool#resize()}.
+ * @param leaks      the leak detection configuration; see {@link LeakDetectable}.
+ * @param validation the validation configuration; see {@link Validatable}.
+ * @param order      the order in which the idle objects are reused; {@link ReuseOrder#LIFO} if {@code null}.
+ * @author squid233
+ * @since 0.1.0
+ */
+public record PoolConfig(EvictionConfig eviction,
+                         CapacityConfig capacity,
+                         PoolMetrics metrics,
+                         ResetConfig reset,
+                         SizingConfig sizing,
+                         LeakConfig leaks,
+                         ValidationConfig validation,
+                         ReuseOrder order) {
+    /**
+     * The configuration with all features disabled.
+     */
+    public static final PoolConfig DEFAULT = new PoolConfig(null, null, null, null, null, null, null, null);
+
+    /**
+     * {@return a copy of this configuration with the given eviction configuration}
+     *
+     * @param eviction   the eviction configuration; or {@code null} to disable eviction.
+     */
+    public PoolConfig withEviction(EvictionConfig eviction) {
+        return new PoolConfig(eviction, capacity, metrics, reset, sizing, leaks, validation, order);
+    }
+
+    /**
+     * {@return a copy of this configuration with the given capacity limits}
+     *
+     * @param capacity   the capacity limits; or {@code null} to disable the limits.
+     */
+    public PoolConfig withCapacity(CapacityConfig capacity) {
+        return new PoolConfig(eviction, capacity, metrics, reset, sizing, leaks, validation, order);
+    }
+
+    /**
+     * {@return a copy of this configuration with the given metrics}
+     *
+     * @param metrics the metrics; or {@code null} to disable the metrics.
+     */
+    public PoolConfig withMetrics(PoolMetrics metrics) {
+        return new PoolConfig(eviction, capacity, metrics, reset, sizing, leaks, validation, order);
+    }
+
+    /**
+     * {@return a copy of this configuration with the given deferred reset configuration}
+     *
+     * @param reset the deferred reset configuration; or {@code null} to reset the objects on borrow.
+     */
+    public PoolConfig withReset(ResetConfig reset) {
+        return new PoolConfig(eviction, capacity, metrics, reset, sizing, leaks, validation, order);
+    }
+
+    /**
+     * {@return a copy of this configuration with the given adaptive sizing configuration}
+     *
+     * @param sizing the adaptive sizing configuration; or {@code null} to disable adaptive sizing.
+     */
+    public PoolConfig withSizing(SizingConfig sizing) {
+        return new PoolConfig(eviction, capacity, metrics, reset, sizing, leaks, validation, order);
+    }
+
+    /**
+     * {@return a copy of this configuration with the given leak detection configuration}
+     *
+     * @param leaks the leak detection configuration; or {@code null} to disable leak detection.
+     */
+    public PoolConfig withLeakDetection(LeakConfig leaks) {
+        return new PoolConfig(eviction, capacity, metrics, reset, sizing, leaks, validation, order);
+    }
+
+    /**
+     * {@return a copy of this configuration with the given validation configuration}
+     *
+     * @param validation the validation configuration; or {@code null} to disable validation.
+     */
+    public PoolConfig withValidation(ValidationConfig validation) {
+        return new PoolConfig(eviction, capacity, metrics, reset, sizing, leaks, validation, order);
+    }
+
+    /**
+     * {@return a copy of this configuration with the given reuse order}
+     *
+     * @param order the order in which the idle objects are reused; or {@code null} for {@link ReuseOrder#LIFO}.
+     */
+    public PoolConfig withReuseOrder(ReuseOrder order) {
+        return new PoolConfig(eviction, capacity, metrics, reset, sizing, leaks, validation, order);
+    }
+
+    /**
+     * Checks that the given pool supports the enabled features.
+     *
+     * @param pool       the name of the pool.
+     * @param eviction   whether the pool supports eviction.
+     * @param capacity   whether the pool supports capacity limits.
+     * @param sizing     whether the pool supports adaptive sizing.
+     * @param leaks      whether the pool supports leak detection.
+     * @param validation whether the pool supports validation.
+     * @param order      whether the pool supports reuse orders other than {@link ReuseOrder#LIFO}.
+     * @return this configuration.
+     */
+    PoolConfig require(String pool,
+                       boolean eviction,
+                       boolean capacity,
+                       boolean sizing,
+                       boolean leaks,
+                       boolean validation,
+                       boolean order) {
+        if (!eviction && this.eviction != null) {
+            throw new IllegalArgumentException(pool + " does not support eviction");
+        }
+        if (!capacity && this.capacity != null) {
+            throw new IllegalArgumentException(pool + " does not support capacity limits");
+        }
+        if (!sizing && this.sizing != null) {
+            throw new IllegalArgumentException(pool + " does not support adaptive sizing");
+        }
+        if (!leaks && this.leaks != null) {
+            throw new IllegalArgumentException(pool + " does not support leak detection");
+        }
+        if (!validation && this.validation != null) {
+            throw new IllegalArgumentException(pool + " does not support validation");
+        }
+        if (!order && this.order != null && this.order != ReuseOrder.LIFO) {
+            throw new IllegalArgumentException(pool + " does not support " + this.order + " reuse order");
+        }
+        return this;
+    }
+}
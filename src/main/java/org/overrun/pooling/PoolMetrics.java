@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.Objects;
+
+/**
+ * Receives the events of a pool.
+ * <p>
+ * A pool without metrics does not call any method, so disabled metrics cost only a null check.
+ * The latency methods are called only if {@link #recordsLatency()} returns {@code true}.
+ * Implement this interface to bridge to a metrics library; see {@link CountingMetrics} and {@link JfrMetrics}.
+ * <p>
+ * The methods are called from the borrowing and returning threads, so they must be thread-safe and fast.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public interface PoolMetrics {
+    /**
+     * Called when an object is borrowed.
+     */
+    default void onBorrow() {
+    }
+
+    /**
+     * Called when a borrow finds no idle object, before creating one or failing.
+     */
+    default void onMiss() {
+    }
+
+    /**
+     * Called when a borrow fails.
+     */
+    default void onFailure() {
+    }
+
+    /**
+     * Called when an object is returned.
+     */
+    default void onReturn() {
+    }
+
+    /**
+     * Called when an object is created.
+     *
+     * @param nanos the time taken by the constructor; or 0 if the latency is not recorded.
+     */
+    default void onCreate(long nanos) {
+    }
+
+    /**
+     * Called when an object is evicted or destroyed.
+     */
+    default void onDestroy() {
+    }
+
+    /**
+     * Called after {@link Poolable#reset()}, only if the latency is recorded.
+     *
+     * @param nanos the time taken by the reset.
+     */
+    default void onReset(long nanos) {
+    }
+
+    /**
+     * Called after a borrow has waited, only if the latency is recorded.
+     *
+     * @param nanos the time waited.
+     */
+    default void onWait(long nanos) {
+    }
+
+    /**
+     * {@return {@code true} if the pool should measure the latencies}
+     */
+    default boolean recordsLatency() {
+        return false;
+    }
+
+    /**
+     * {@return metrics that forward the events to both of the given metrics}
+     *
+     * @param first  the first metrics.
+     * @param second the second metrics.
+     */
+    static PoolMetrics compose(PoolMetrics first, PoolMetrics second) {
+        Objects.requireNonNull(first);
+        Objects.requireNonNull(second);
+        return new PoolMetrics() {
+            @Override
+            public void onBorrow() {
+                first.onBorrow();
+                second.onBorrow();
+            }
+
+            @Override
+            public void onMiss() {
+                first.onMiss();
+                second.onMiss();
+            }
+
+            @Override
+            public void onFailure() {
+                first.onFailure();
+                second.onFailure();
+            }
+
+            @Override
+            public void onReturn() {
+                first.onReturn();
+                second.onReturn();
+            }
+
+            @Override
+            public void onCreate(long nanos) {
+                first.onCreate(nanos);
+                second.onCreate(nanos);
+            }
+
+            @Override
+            public void onDestroy() {
+                first.onDestroy();
+                second.onDestroy();
+            }
+
+            @Override
+            public void onReset(long nanos) {
+                if (first.recordsLatency()) first.onReset(nanos);
+                if (second.recordsLatency()) second.onReset(nanos);
+            }
+
+            @Override
+            public void onWait(long nanos) {
+                if (first.recordsLatency()) first.onWait(nanos);
+                if (second.recordsLatency()) second.onWait(nanos);
+            }
+
+            @Override
+            public boolean recordsLatency() {
+                return first.recordsLatency() || second.recordsLatency();
+            }
+        };
+    }
+}
@@ -16,29 +16,28 @@
 
 package org.overrun.pooling;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
-
 /**
  * The state that holds the instance of the object.
  *
  * @author squid233
  * @since 0.1.0
  */
-public final class PoolObjectState<T extends Poolable> {
-    final int id;
-    private final AtomicReference<T> object;
-    final AtomicBoolean lent = new AtomicBoolean(true);
+public final class PoolObjectState<T extends Poolable> extends Slot<T> {
+    /**
+     * The successful result of this state, which is reused by each borrow.
+     */
+    final Result<T> result = new Result<>(this, null);
+    /**
+     * The partition of the {@link PartitionedObjectPool} that owns this state; 0 in the other pools.
+     */
+    final int partition;
 
     PoolObjectState(int id, T object) {
-        this.id = id;
-        this.object = new AtomicReference<>(object);
+        this(0, id, object);
     }
 
-    /**
-     * {@return the instance of the object}
-     */
-    public T get() {
-        return object.get();
+    PoolObjectState(int partition, int id, T object) {
+        super(id, object);
+        this.partition = partition;
     }
 }
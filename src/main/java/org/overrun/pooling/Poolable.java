@@ -29,4 +29,15 @@ public interface Poolable {
      * Resets the values in this object.
      */
     void reset();
+
+    /**
+     * Checks whether this object can still be used, for example whether its connection is still open.
+     * <p>
+     * This is only called by the pools configured with a {@link ValidationConfig}, and it should be cheap.
+     *
+     * @return {@code true} if this object can still be used; {@code false} to destroy it.
+     */
+    default boolean isValid() {
+        return true;
+    }
 }
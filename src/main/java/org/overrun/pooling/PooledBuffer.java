@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A block of native memory borrowed from a {@link BufferPool}.
+ * <p>
+ * The buffer is a slice of a slab shared with other blocks, so it must not be used after it is returned.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class PooledBuffer implements Poolable {
+    private ByteBuffer buffer;
+
+    PooledBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * {@return the direct buffer of this block}
+     *
+     * @throws IllegalStateException if the pool has been cleaned up.
+     */
+    public ByteBuffer buffer() {
+        final ByteBuffer b = buffer;
+        if (b == null) {
+            throw new IllegalStateException("The BufferPool has been cleaned up");
+        }
+        return b;
+    }
+
+    /**
+     * Clears the buffer and restores the big-endian byte order; the content is not zeroed.
+     */
+    @Override
+    public void reset() {
+        final ByteBuffer b = buffer;
+        if (b != null) {
+            b.clear().order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    /**
+     * Detaches the buffer so that the slab can be freed.
+     */
+    void release() {
+        buffer = null;
+    }
+}
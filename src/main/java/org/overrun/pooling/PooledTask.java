@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs functions with pooled objects borrowed asynchronously.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class PooledTask {
+    private PooledTask() {
+    }
+
+    /**
+     * Applies the given function to the object of the borrowed state, and returns the state before the returned
+     * future completes.
+     * <p>
+     * The state is returned even if the returned future has been cancelled, and cancelling the returned future
+     * before the borrow completes cancels the borrow.
+     *
+     * @param borrowed  the future of the borrowed state.
+     * @param returning the function that returns the state to its pool.
+     * @param function  the function.
+     * @param executor  the executor that runs the function; or {@code null} to run in the thread that completes
+     *                  the borrow.
+     * @param <S>       the type of the states.
+     * @param <T>       the type of the instances.
+     * @param <R>       the type of the result.
+     * @return the future of the result of the function.
+     */
+    static <S extends Slot<T>, T extends Poolable, R> CompletableFuture<R> apply(
+        CompletableFuture<S> borrowed,
+        Consumer<S> returning,
+        Function<? super T, ? extends R> function,
+        Executor executor) {
+        final var result = new CompletableFuture<R>();
+        final BiConsumer<S, Throwable> action = (state, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            // return the object before completing, so that it is available to the dependent actions
+            final R value;
+            try {
+                value = result.isDone() ? null : function.apply(state.get());
+            } catch (Throwable e) {
+                returning.accept(state);
+                result.completeExceptionally(e);
+                return;
+            }
+            returning.accept(state);
+            result.complete(value);
+        };
+        if (executor != null) {
+            borrowed.whenCompleteAsync(action, executor);
+        } else {
+            borrowed.whenComplete(action);
+        }
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                borrowed.cancel(false);
+            }
+        });
+        return result;
+    }
+}
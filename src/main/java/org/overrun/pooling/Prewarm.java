@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Creates the objects of a pool ahead of time, in the current thread or in parallel.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class Prewarm {
+    private Prewarm() {
+    }
+
+    /**
+     * Checks the count of the objects to prewarm.
+     *
+     * @param count the count.
+     * @return {@code count}.
+     */
+    static int checkCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Runs the given step until it creates no more object.
+     *
+     * @param step the step that creates an object, and returns {@code false} if no more object should be created.
+     */
+    static void run(BooleanSupplier step) {
+        boolean created;
+        do {
+            created = step.getAsBoolean();
+        } while (created);
+    }
+
+    /**
+     * Runs the given step in parallel until it creates no more object.
+     * <p>
+     * One task per available processor, but no more than {@code objects}, runs the step repeatedly,
+     * so the objects are created in parallel without a task per object.
+     *
+     * @param objects  the expected count of the objects to create.
+     * @param step     the step that creates an object, and returns {@code false} if no more object should be created;
+     *                 it must be thread-safe.
+     * @param executor the executor that runs the tasks.
+     * @return the future that is completed when all tasks are done; or exceptionally if a step fails.
+     */
+    static CompletableFuture<Void> parallel(int objects, BooleanSupplier step, Executor executor) {
+        final int tasks = Math.min(objects, IndexShards.defaultCount());
+        if (tasks <= 0) return CompletableFuture.completedFuture(null);
+        final var futures = new CompletableFuture<?>[tasks];
+        for (int i = 0; i < tasks; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> run(step), executor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * The hooks of a pool for a cache in front of it, such as the magazines of a {@link ThreadCachedPool}, which keeps
+ * the returned objects out of the pool and lends them again.
+ * <p>
+ * The hooks apply the policies of the pool to the cached objects as if they were returned and borrowed:
+ * the reset, the validation, the metrics and the leases of the leak detection. A cached object is neither lent
+ * nor idle in the pool.
+ *
+ * @param <S> the type of the states.
+ * @author squid233
+ * @since 0.1.0
+ */
+interface Recycler<S> {
+    /**
+     * Takes a returned state into the cache: ends its lease, drops it if it is invalid, and resets it now if
+     * the pool defers its reset.
+     *
+     * @param state the state.
+     * @return {@code true} if the state is held by the caller, which is neither lent nor idle;
+     * {@code false} if the state was not lent or has been dropped.
+     */
+    boolean cache(S state);
+
+    /**
+     * Gives a cached state back to the pool, without ending its lease again.
+     *
+     * @param state the state taken from the cache, which is lent.
+     */
+    void uncache(S state);
+
+    /**
+     * Lends a cached state again: replaces its object if it is invalid, or resets it unless it has been reset
+     * when cached.
+     *
+     * @param state the state taken from the cache, which is lent.
+     */
+    void reborrow(S state);
+
+    /**
+     * {@return the hooks of the given pool}
+     * The pools of this module apply their own policies; any other pool gets the objects back only when a cache
+     * is full or flushed, and a cached object is reset when it is lent again.
+     *
+     * @param pool the pool.
+     * @param <T>  the type of the instances.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Poolable> Recycler<PoolObjectState<T>> of(Pool<T> pool) {
+        if (pool instanceof ObjectPool<T> p) return p.recycler();
+        if (pool instanceof StripedObjectPool<T> p) return p.recycler();
+        if (pool instanceof PartitionedObjectPool<T> p) return p.recycler();
+        if (pool instanceof FixedObjectPool<T> p) return p.recycler();
+        if (pool instanceof BufferPool p) return (Recycler<PoolObjectState<T>>) (Recycler<?>) p.recycler();
+        return new Recycler<>() {
+            @Override
+            public boolean cache(PoolObjectState<T> state) {
+                return state.casStatus(Slot.LENT, Slot.IDLE);
+            }
+
+            @Override
+            public void uncache(PoolObjectState<T> state) {
+                pool.returning(state);
+            }
+
+            @Override
+            public void reborrow(PoolObjectState<T> state) {
+                state.get().reset();
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The configuration of deferred reset, which moves {@link Poolable#reset()} off the borrow path.
+ * <p>
+ * Without this configuration, an object is reset by the thread that borrows it. With a deferred reset, an object is
+ * reset after it is returned, and it is invisible to the borrowers and the evictor until its reset finishes,
+ * so a borrowed object is always already reset. If a deferred reset throws, the object is discarded
+ * and the exception is rethrown to the returning thread or the executor.
+ *
+ * @param mode     when to reset the objects.
+ * @param executor the executor that resets the objects with {@link Mode#BACKGROUND}; ignored otherwise.
+ * @author squid233
+ * @since 0.1.0
+ */
+public record ResetConfig(Mode mode, Executor executor) {
+    /**
+     * Resets the objects in the returning thread.
+     */
+    public static final ResetConfig ON_RETURN = new ResetConfig(Mode.ON_RETURN, null);
+
+    /**
+     * When to reset a returned object.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public enum Mode {
+        /**
+         * Resets the object in the returning thread before it becomes available.
+         */
+        ON_RETURN,
+        /**
+         * Resets the object in the executor, so that returning does not wait for the reset.
+         * If the executor rejects the task, the object is reset in the returning thread.
+         */
+        BACKGROUND
+    }
+
+    /**
+     * Creates a deferred reset configuration.
+     *
+     * @param mode     when to reset the objects.
+     * @param executor the executor that resets the objects with {@link Mode#BACKGROUND}; ignored otherwise.
+     */
+    public ResetConfig {
+        Objects.requireNonNull(mode, "mode");
+        if (mode == Mode.BACKGROUND) {
+            Objects.requireNonNull(executor, "executor");
+        }
+    }
+
+    /**
+     * Creates a configuration that resets the objects in the given executor.
+     *
+     * @param executor the executor, such as a single-thread cleaner.
+     */
+    public ResetConfig(Executor executor) {
+        this(Mode.BACKGROUND, executor);
+    }
+
+    /**
+     * Runs the given reset task as this configuration specifies.
+     *
+     * @param task the task that resets the returned objects and makes them available.
+     */
+    void run(Runnable task) {
+        if (mode == Mode.BACKGROUND) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                // reset in the returning thread
+            }
+        }
+        task.run();
+    }
+}
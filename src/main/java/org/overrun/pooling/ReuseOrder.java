@@ -0,0 +1,37 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * The order in which a pool hands out its idle objects.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public enum ReuseOrder {
+    /**
+     * The most recently returned object is borrowed first, so its memory is likely still in the cache of the CPU.
+     * This is the order of all pools by default.
+     */
+    LIFO,
+    /**
+     * The object that has been idle for the longest time is borrowed first, so the objects are used in turn,
+     * like round-robin. This spreads the wear across the objects, such as the connections to several servers,
+     * and lets {@link Validatable#validateIdle()} go around all idle objects.
+     */
+    FIFO
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * The index math of growable segmented arrays.
+ * <p>
+ * Segment {@code k} holds {@code (1 << shift) << k} elements, so a segmented array never copies its elements
+ * when it grows, and the segments can be allocated lazily by any thread.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class Segments {
+    private Segments() {
+    }
+
+    /**
+     * {@return the shift of the first segment that can hold the given count of elements}
+     *
+     * @param capacity the initial capacity.
+     */
+    static int shift(int capacity) {
+        if (capacity <= 1) return 0;
+        return Math.min(30, 32 - Integer.numberOfLeadingZeros(capacity - 1));
+    }
+
+    /**
+     * {@return the count of the segments}
+     *
+     * @param shift the shift of the first segment.
+     */
+    static int count(int shift) {
+        return 31 - shift;
+    }
+
+    /**
+     * {@return the segment of the given index}
+     *
+     * @param index the index.
+     * @param shift the shift of the first segment.
+     */
+    static int segment(int index, int shift) {
+        return 31 - Integer.numberOfLeadingZeros(index + (1 << shift)) - shift;
+    }
+
+    /**
+     * {@return the offset of the given index in its segment}
+     *
+     * @param index the index.
+     * @param shift the shift of the first segment.
+     */
+    static int offset(int index, int shift) {
+        final int i = index + (1 << shift);
+        return i - Integer.highestOneBit(i);
+    }
+
+    /**
+     * {@return the length of the given segment}
+     *
+     * @param segment the segment.
+     * @param shift   the shift of the first segment.
+     */
+    static int length(int segment, int shift) {
+        return 1 << (shift + segment);
+    }
+}
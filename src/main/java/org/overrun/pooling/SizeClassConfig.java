@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The size classes of a {@link SizeClassPool}.
+ * <p>
+ * A borrow of {@code n} elements is served by the smallest class of at least {@code n} elements;
+ * if that class is empty, up to {@code borrowUp} larger classes are tried before a new array is allocated.
+ *
+ * @param spacing     how the classes are spaced.
+ * @param minSize     the size of the smallest class, which is rounded up to a power of two.
+ * @param maxSize     the size up to which the classes are created; larger borrows are not pooled.
+ * @param maxRetained the maximum count of the idle arrays of each class.
+ * @param borrowUp    the count of the larger classes to try if a class is empty.
+ * @author squid233
+ * @since 0.1.0
+ */
+public record SizeClassConfig(Spacing spacing, int minSize, int maxSize, int maxRetained, int borrowUp) {
+    /**
+     * The largest size of a class.
+     */
+    public static final int MAX_CLASS_SIZE = 1 << 30;
+    /**
+     * The default size classes, which are powers of two from 16 to 1 MiB elements with 64 idle arrays
+     * in each class, borrowing from the next class up.
+     */
+    public static final SizeClassConfig DEFAULT = new SizeClassConfig(Spacing.POWER_OF_TWO, 16, 1 << 20, 64, 1);
+
+    /**
+     * How the size classes are spaced.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public enum Spacing {
+        /**
+         * Each class is twice as large as the previous one, which wastes up to half of an array.
+         */
+        POWER_OF_TWO,
+        /**
+         * Each power of two is split into four classes as jemalloc does, which wastes up to a fifth of an array
+         * in exchange for four times as many classes.
+         */
+        QUARTERS
+    }
+
+    /**
+     * Creates size classes.
+     *
+     * @param spacing     how the classes are spaced.
+     * @param minSize     the size of the smallest class, which is rounded up to a power of two.
+     * @param maxSize     the size up to which the classes are created; larger borrows are not pooled.
+     * @param maxRetained the maximum count of the idle arrays of each class.
+     * @param borrowUp    the count of the larger classes to try if a class is empty.
+     */
+    public SizeClassConfig {
+        Objects.requireNonNull(spacing, "spacing");
+        if (minSize <= 0) {
+            throw new IllegalArgumentException("minSize must be positive: " + minSize);
+        }
+        if (maxSize < minSize || maxSize > MAX_CLASS_SIZE) {
+            throw new IllegalArgumentException("maxSize must be in [minSize, " + MAX_CLASS_SIZE + "]: " + maxSize);
+        }
+        if (maxRetained <= 0) {
+            throw new IllegalArgumentException("maxRetained must be positive: " + maxRetained);
+        }
+        if (borrowUp < 0) {
+            throw new IllegalArgumentException("borrowUp must not be negative: " + borrowUp);
+        }
+    }
+
+    /**
+     * {@return the sizes of the classes in ascending order}
+     */
+    int[] sizes() {
+        int[] sizes = new int[64];
+        int count = 0;
+        int size = 1 << Segments.shift(minSize);
+        sizes[count++] = size;
+        while (size < maxSize) {
+            final int quarter = size >> 2;
+            if (spacing == Spacing.QUARTERS && quarter > 0) {
+                for (int i = 1; i <= 4; i++) {
+                    if (count == sizes.length) sizes = Arrays.copyOf(sizes, count * 2);
+                    sizes[count++] = size + quarter * i;
+                }
+            } else {
+                if (count == sizes.length) sizes = Arrays.copyOf(sizes, count * 2);
+                sizes[count++] = size << 1;
+            }
+            size <<= 1;
+        }
+        return Arrays.copyOf(sizes, count);
+    }
+}
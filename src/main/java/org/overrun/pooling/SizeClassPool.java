@@ -0,0 +1,346 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * A pool of variable-capacity arrays or buffers, which rounds each borrow up to a size class.
+ * <p>
+ * The idle arrays of each class are kept in a lock-free bag, and the arrays are handed out as they are,
+ * without a {@link Poolable} wrapper, so neither borrowing nor returning allocates.
+ * The class of a returned array is determined by its length; an array whose length is not the size of a class
+ * is dropped, as is an array returned to a full class.
+ * <p>
+ * Use {@link #ofBytes()}, {@link #ofInts()}, {@link #ofLongs()} and {@link #ofDirectBuffers()}
+ * for the common types. The arrays are not zeroed, and an array must not be returned twice.
+ *
+ * @param <A> the type of the arrays.
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class SizeClassPool<A> {
+    private final IntFunction<A> allocator;
+    private final ToIntFunction<A> length;
+    private final Consumer<A> reset;
+    private final int[] sizes;
+    private final BoundedStack<A>[] idle;
+    private final int borrowUp;
+    private final PoolMetrics metrics;
+    private final ResetConfig deferredReset;
+
+    /**
+     * Creates a size-class pool with the given configuration.
+     * <p>
+     * This pool supports metrics and deferred reset.
+     *
+     * @param allocator the allocator of the arrays with the given length.
+     * @param length    the function that returns the length of an array.
+     * @param reset     the action that resets an array before it is borrowed again, or after it is returned with
+     *                  a deferred reset; may be {@code null}.
+     * @param classes   the size classes.
+     * @param config    the configuration of this pool.
+     */
+    public SizeClassPool(IntFunction<A> allocator,
+                         ToIntFunction<A> length,
+                         Consumer<A> reset,
+                         SizeClassConfig classes,
+                         PoolConfig config) {
+        config.require("SizeClassPool", false, false, false, false, false, false);
+        this.allocator = Objects.requireNonNull(allocator);
+        this.length = Objects.requireNonNull(length);
+        this.reset = reset;
+        this.sizes = classes.sizes();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final BoundedStack<A>[] idle = new BoundedStack[sizes.length];
+        final int shardCount = Math.min(IndexShards.defaultCount(), classes.maxRetained());
+        for (int i = 0; i < idle.length; i++) {
+            idle[i] = new BoundedStack<>(classes.maxRetained(), shardCount);
+        }
+        this.idle = idle;
+        this.borrowUp = classes.borrowUp();
+        this.metrics = config.metrics();
+        this.deferredReset = reset != null ? config.reset() : null;
+    }
+
+    /**
+     * Creates a size-class pool.
+     *
+     * @param allocator the allocator of the arrays with the given length.
+     * @param length    the function that returns the length of an array.
+     * @param reset     the action that resets an array before it is borrowed again; may be {@code null}.
+     * @param classes   the size classes.
+     */
+    public SizeClassPool(IntFunction<A> allocator, ToIntFunction<A> length, Consumer<A> reset, SizeClassConfig classes) {
+        this(allocator, length, reset, classes, PoolConfig.DEFAULT);
+    }
+
+    /**
+     * {@return a pool of byte arrays}
+     *
+     * @param classes the size classes.
+     */
+    public static SizeClassPool<byte[]> ofBytes(SizeClassConfig classes) {
+        return new SizeClassPool<>(byte[]::new, a -> a.length, null, classes);
+    }
+
+    /**
+     * {@return a pool of byte arrays with the default size classes}
+     */
+    public static SizeClassPool<byte[]> ofBytes() {
+        return ofBytes(SizeClassConfig.DEFAULT);
+    }
+
+    /**
+     * {@return a pool of int arrays}
+     *
+     * @param classes the size classes.
+     */
+    public static SizeClassPool<int[]> ofInts(SizeClassConfig classes) {
+        return new SizeClassPool<>(int[]::new, a -> a.length, null, classes);
+    }
+
+    /**
+     * {@return a pool of int arrays with the default size classes}
+     */
+    public static SizeClassPool<int[]> ofInts() {
+        return ofInts(SizeClassConfig.DEFAULT);
+    }
+
+    /**
+     * {@return a pool of long arrays}
+     *
+     * @param classes the size classes.
+     */
+    public static SizeClassPool<long[]> ofLongs(SizeClassConfig classes) {
+        return new SizeClassPool<>(long[]::new, a -> a.length, null, classes);
+    }
+
+    /**
+     * {@return a pool of long arrays with the default size classes}
+     */
+    public static SizeClassPool<long[]> ofLongs() {
+        return ofLongs(SizeClassConfig.DEFAULT);
+    }
+
+    /**
+     * {@return a pool of direct byte buffers, which are cleared and set to big-endian before they are borrowed again}
+     *
+     * @param classes the size classes in bytes.
+     */
+    public static SizeClassPool<ByteBuffer> ofDirectBuffers(SizeClassConfig classes) {
+        return new SizeClassPool<>(ByteBuffer::allocateDirect,
+            ByteBuffer::capacity,
+            buffer -> buffer.clear().order(ByteOrder.BIG_ENDIAN),
+            classes);
+    }
+
+    /**
+     * {@return a pool of direct byte buffers with the default size classes}
+     */
+    public static SizeClassPool<ByteBuffer> ofDirectBuffers() {
+        return ofDirectBuffers(SizeClassConfig.DEFAULT);
+    }
+
+    /**
+     * {@return the smallest size class of at least the given size; or {@code -1} if it is larger than all classes}
+     *
+     * @param size the size.
+     */
+    private int classOf(int size) {
+        final int i = Arrays.binarySearch(sizes, size);
+        if (i >= 0) return i;
+        final int insertion = -i - 1;
+        return insertion < sizes.length ? insertion : -1;
+    }
+
+    /**
+     * Borrows an array of at least the given length.
+     * <p>
+     * The length of the array is the size of its class, or exactly the given length if it is larger than
+     * all classes, in which case the array is not pooled.
+     *
+     * @param minLength the minimum length.
+     * @return the array.
+     */
+    public A borrow(int minLength) {
+        if (minLength < 0) {
+            throw new IllegalArgumentException("minLength must not be negative: " + minLength);
+        }
+        final int index = classOf(minLength);
+        if (index >= 0) {
+            for (int i = index, end = Math.min(index + borrowUp, sizes.length - 1); i <= end; i++) {
+                final A a = idle[i].poll();
+                if (a != null) {
+                    if (reset != null && deferredReset == null) {
+                        reset.accept(a);
+                    }
+                    if (metrics != null) metrics.onBorrow();
+                    return a;
+                }
+            }
+        }
+        if (metrics != null) metrics.onMiss();
+        final A a = allocate(index >= 0 ? sizes[index] : minLength);
+        if (metrics != null) metrics.onBorrow();
+        return a;
+    }
+
+    private A allocate(int length) {
+        if (metrics == null) return allocator.apply(length);
+        final boolean timed = metrics.recordsLatency();
+        final long start = timed ? System.nanoTime() : 0L;
+        final A a;
+        try {
+            a = allocator.apply(length);
+        } catch (Throwable e) {
+            metrics.onFailure();
+            throw e;
+        }
+        metrics.onCreate(timed ? System.nanoTime() - start : 0L);
+        return a;
+    }
+
+    /**
+     * Returns the given array to this pool.
+     *
+     * @param array the array.
+     */
+    public void returning(A array) {
+        final int i = Arrays.binarySearch(sizes, length.applyAsInt(array));
+        if (metrics != null) metrics.onReturn();
+        if (i < 0) {
+            if (metrics != null) metrics.onDestroy();
+        } else if (deferredReset == null) {
+            retain(i, array);
+        } else if (deferredReset.mode() == ResetConfig.Mode.ON_RETURN) {
+            resetAndRetain(i, array);
+        } else {
+            deferredReset.run(() -> resetAndRetain(i, array));
+        }
+    }
+
+    private void retain(int i, A array) {
+        if (!idle[i].offer(array) && metrics != null) metrics.onDestroy();
+    }
+
+    /**
+     * Resets a returned array before it becomes available; drops it if the reset fails.
+     *
+     * @param i     the index of the class.
+     * @param array the array.
+     */
+    private void resetAndRetain(int i, A array) {
+        try {
+            reset.accept(array);
+        } catch (Throwable e) {
+            if (metrics != null) metrics.onDestroy();
+            throw e;
+        }
+        retain(i, array);
+    }
+
+    /**
+     * Allocates an idle array of the given class if any remains to allocate.
+     *
+     * @param index     the index of the class.
+     * @param remaining the count of the arrays still to allocate.
+     * @return {@code true} if an array has been retained; {@code false} if none remains or the class is full.
+     */
+    private boolean prewarmOne(int index, AtomicInteger remaining) {
+        if (remaining.getAndDecrement() <= 0) return false;
+        final A a = allocate(sizes[index]);
+        if (idle[index].offer(a)) return true;
+        if (metrics != null) metrics.onDestroy();
+        return false;
+    }
+
+    private int prewarmClass(int minLength, int count) {
+        if (minLength < 0) {
+            throw new IllegalArgumentException("minLength must not be negative: " + minLength);
+        }
+        Prewarm.checkCount(count);
+        final int index = classOf(minLength);
+        if (index < 0) {
+            throw new IllegalArgumentException("minLength is larger than all classes: " + minLength);
+        }
+        return index;
+    }
+
+    /**
+     * Allocates the given count of idle arrays of the class of the given length ahead of time,
+     * so that the borrowers do not pay for the allocation.
+     * <p>
+     * The allocation stops when the class is full.
+     *
+     * @param minLength the minimum length of the arrays.
+     * @param count     the count of the arrays.
+     * @throws IllegalArgumentException if {@code minLength} or {@code count} is negative,
+     *                                  or {@code minLength} is larger than all classes.
+     */
+    public void prewarm(int minLength, int count) {
+        final int index = prewarmClass(minLength, count);
+        final AtomicInteger remaining = new AtomicInteger(count);
+        Prewarm.run(() -> prewarmOne(index, remaining));
+    }
+
+    /**
+     * Allocates the given count of idle arrays of the class of the given length ahead of time in parallel.
+     *
+     * @param minLength the minimum length of the arrays.
+     * @param count     the count of the arrays.
+     * @param executor  the executor that runs the allocators.
+     * @return the future that is completed when the arrays are ready; or exceptionally if an allocator fails.
+     * @throws IllegalArgumentException if {@code minLength} or {@code count} is negative,
+     *                                  or {@code minLength} is larger than all classes.
+     */
+    public CompletableFuture<Void> prewarmAsync(int minLength, int count, Executor executor) {
+        final int index = prewarmClass(minLength, count);
+        final AtomicInteger remaining = new AtomicInteger(count);
+        return Prewarm.parallel(count, () -> prewarmOne(index, remaining), executor);
+    }
+
+    /**
+     * Allocates the given count of idle arrays of the class of the given length ahead of time in the common
+     * fork-join pool.
+     *
+     * @param minLength the minimum length of the arrays.
+     * @param count     the count of the arrays.
+     * @return the future that is completed when the arrays are ready; or exceptionally if an allocator fails.
+     * @see #prewarmAsync(int, int, Executor)
+     */
+    public CompletableFuture<Void> prewarmAsync(int minLength, int count) {
+        return prewarmAsync(minLength, count, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * {@return the sizes of the classes in ascending order}
+     */
+    public int[] classSizes() {
+        return sizes.clone();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Observes the demand of a pool through its metrics events, and computes its target size at the end of each
+ * sampling window.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class Sizer implements PoolMetrics {
+    private final SizingConfig config;
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicInteger lent = new AtomicInteger();
+    private final AtomicInteger peakLent = new AtomicInteger();
+    private long windowStart = System.nanoTime();
+    private double smoothedPeak = Double.NaN;
+    private int target;
+
+    /**
+     * Creates a sizer.
+     *
+     * @param config the sizing configuration.
+     */
+    Sizer(SizingConfig config) {
+        this.config = config;
+        this.target = config.minSize();
+    }
+
+    @Override
+    public void onBorrow() {
+        borrows.increment();
+        final int n = lent.incrementAndGet();
+        int peak;
+        do {
+            peak = peakLent.get();
+            if (n <= peak) return;
+        } while (!peakLent.compareAndSet(peak, n));
+    }
+
+    @Override
+    public void onMiss() {
+        misses.increment();
+    }
+
+    @Override
+    public void onReturn() {
+        lent.decrementAndGet();
+    }
+
+    /**
+     * {@return the count of the lent objects}
+     */
+    int lent() {
+        return Math.max(0, lent.get());
+    }
+
+    /**
+     * Closes the current sampling window and computes the new target size.
+     * <p>
+     * The sizing steps must not run concurrently.
+     *
+     * @param size the count of the objects of the pool.
+     * @return the decision.
+     */
+    SizingConfig.Decision sample(int size) {
+        final long now = System.nanoTime();
+        final long elapsed = Math.max(1L, now - windowStart);
+        windowStart = now;
+        final long borrowed = borrows.sumThenReset();
+        final long missed = misses.sumThenReset();
+        // the next window starts with the objects that are still lent
+        final int peak = Math.max(0, peakLent.getAndSet(Math.max(0, lent.get())));
+        smoothedPeak = Double.isNaN(smoothedPeak)
+            ? peak
+            : config.smoothing() * peak + (1.0 - config.smoothing()) * smoothedPeak;
+        final double wanted = Math.ceil(smoothedPeak * (1.0 + config.headroom()));
+        final int previous = target;
+        target = (int) Math.max(config.minSize(), Math.min(config.maxSize(), wanted));
+        return new SizingConfig.Decision(previous,
+            target,
+            size,
+            borrowed * 1e9 / elapsed,
+            borrowed != 0 ? (double) missed / borrowed : 0.0,
+            peak,
+            smoothedPeak);
+    }
+}
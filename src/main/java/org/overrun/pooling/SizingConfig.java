@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * The configuration of adaptive sizing, which keeps the size of a pool close to the observed demand.
+ * <p>
+ * Each sizing step closes a sampling window, which spans the time since the previous step. The peak count of
+ * the lent objects in the window is smoothed with an exponentially weighted moving average, and the target size is
+ * the smoothed peak plus the headroom, clamped to {@code [minSize, maxSize]}. The pool then creates objects up to
+ * the target size, or evicts the idle objects above it.
+ *
+ * @param minSize   the minimum target size.
+ * @param maxSize   the maximum target size.
+ * @param smoothing the weight of the latest window in the moving average, in {@code (0, 1]};
+ *                  1 follows the latest peak only.
+ * @param headroom  the fraction of the smoothed peak added to the target size, such as 0.25 for 25%.
+ * @param listener  the listener that receives each sizing decision; may be {@code null}.
+ * @author squid233
+ * @since 0.1.0
+ */
+public record SizingConfig(int minSize, int maxSize, double smoothing, double headroom, Listener listener) {
+    /**
+     * A sizing decision, made at the end of a sampling window.
+     *
+     * @param previousTarget the target size before this decision.
+     * @param target         the new target size.
+     * @param size           the count of the objects before the pool is resized.
+     * @param borrowRate     the borrows per second in the window.
+     * @param missRate       the fraction of the borrows in the window that found no idle object.
+     * @param peakLent       the peak count of the lent objects in the window.
+     * @param smoothedPeak   the moving average of the peak counts.
+     * @author squid233
+     * @since 0.1.0
+     */
+    public record Decision(int previousTarget,
+                           int target,
+                           int size,
+                           double borrowRate,
+                           double missRate,
+                           int peakLent,
+                           double smoothedPeak) {
+    }
+
+    /**
+     * Receives the sizing decisions of a pool, in the thread that runs the sizing step.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called after each sizing step, whether the target size has changed or not.
+         *
+         * @param decision the decision.
+         */
+        void onDecision(Decision decision);
+    }
+
+    /**
+     * Creates a sizing configuration.
+     *
+     * @param minSize   the minimum target size.
+     * @param maxSize   the maximum target size.
+     * @param smoothing the weight of the latest window in the moving average, in {@code (0, 1]}.
+     * @param headroom  the fraction of the smoothed peak added to the target size.
+     * @param listener  the listener that receives each sizing decision; may be {@code null}.
+     */
+    public SizingConfig {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("minSize must not be negative: " + minSize);
+        }
+        if (maxSize < minSize) {
+            throw new IllegalArgumentException("maxSize must not be less than minSize: " + maxSize + " < " + minSize);
+        }
+        if (!(smoothing > 0.0 && smoothing <= 1.0)) {
+            throw new IllegalArgumentException("smoothing must be in (0, 1]: " + smoothing);
+        }
+        if (!(headroom >= 0.0)) {
+            throw new IllegalArgumentException("headroom must not be negative: " + headroom);
+        }
+    }
+
+    /**
+     * Creates a sizing configuration with a smoothing of 0.3 and a headroom of 25%.
+     *
+     * @param minSize the minimum target size.
+     * @param maxSize the maximum target size.
+     */
+    public SizingConfig(int minSize, int maxSize) {
+        this(minSize, maxSize, 0.3, 0.25, null);
+    }
+
+    /**
+     * {@return a copy of this configuration with the given listener}
+     *
+     * @param listener the listener; or {@code null} to remove the listener.
+     */
+    public SizingConfig withListener(Listener listener) {
+        return new SizingConfig(minSize, maxSize, smoothing, headroom, listener);
+    }
+}
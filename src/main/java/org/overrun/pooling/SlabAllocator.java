@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates the slabs of a {@link BufferPool}.
+ * <p>
+ * The slabs are direct buffers, whose native memory is freed by the garbage collector once they and the buffers
+ * sliced from them are unreachable. On Java 22 or later, the multi-release overlay of this class allocates the slabs
+ * in a shared {@code Arena} instead, and {@link #close()} frees them at once.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class SlabAllocator {
+    private final int slabSize;
+
+    /**
+     * Creates a slab allocator.
+     *
+     * @param slabSize the size of each slab in bytes.
+     */
+    SlabAllocator(int slabSize) {
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * {@return a new slab}
+     */
+    ByteBuffer allocate() {
+        return ByteBuffer.allocateDirect(slabSize);
+    }
+
+    /**
+     * Frees the slabs allocated by this allocator; a direct buffer cannot be freed explicitly, so this does nothing.
+     */
+    void close() {
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The common part of the states that hold the instances of the objects.
+ * <p>
+ * The object, the status and the generation are plain volatile fields updated with {@link VarHandle}s instead of
+ * atomic wrappers, so a slot is a single object, and its fields are padded away from the previous slot by
+ * {@link SlotPadding}.
+ *
+ * @param <T> the type of the instance.
+ * @author squid233
+ * @since 0.1.0
+ */
+abstract class Slot<T extends Poolable> extends SlotPadding {
+    /**
+     * The value of {@link #idleSince} if the slot is not idle in its pool.
+     */
+    static final long NOT_IDLE = Long.MIN_VALUE;
+    /**
+     * The value of {@link #lentSince} if the slot is not lent or its lease is not tracked.
+     */
+    static final long NOT_LENT = Long.MIN_VALUE;
+    /**
+     * The value of {@link #lentSince} if the lease has been ended by the leak detection.
+     */
+    static final long RECLAIMED = Long.MIN_VALUE + 1;
+    /**
+     * The status of a slot that is idle in its pool, or cached in front of it.
+     */
+    static final int IDLE = 0;
+    /**
+     * The status of a slot that is lent to a borrower, which is the only status that a return accepts.
+     */
+    static final int LENT = 1;
+    /**
+     * The status of a slot that is held by its pool, such as while the evictor removes its object.
+     */
+    static final int HELD = 2;
+    private static final VarHandle OBJECT;
+    private static final VarHandle STATUS;
+    private static final VarHandle GENERATION;
+    private static final VarHandle LENT_SINCE;
+
+    static {
+        try {
+            final var lookup = MethodHandles.lookup();
+            OBJECT = lookup.findVarHandle(Slot.class, "object", Poolable.class);
+            STATUS = lookup.findVarHandle(Slot.class, "status", int.class);
+            GENERATION = lookup.findVarHandle(Slot.class, "generation", int.class);
+            LENT_SINCE = lookup.findVarHandle(Slot.class, "lentSince", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final int id;
+    private volatile T object;
+    /**
+     * The status of this slot; {@link #LENT} when created, since a new slot is created by a borrow.
+     */
+    private volatile int status = LENT;
+    /**
+     * The count of the leases of this slot that have been closed; see {@link Lease}.
+     */
+    private volatile int generation;
+    /**
+     * The {@link System#nanoTime()} when this slot was returned to its pool; or {@link #NOT_IDLE}.
+     * Only written by the pools that track the idle time.
+     */
+    long idleSince = NOT_IDLE;
+    /**
+     * The {@link System#nanoTime()} when this slot was borrowed; or {@link #NOT_LENT} or {@link #RECLAIMED}.
+     * Only written by the pools that detect leaks, and it identifies the lease that the leak detection reclaims.
+     */
+    volatile long lentSince = NOT_LENT;
+    /**
+     * The stack trace of the borrow of this slot if it was sampled; or {@code null}.
+     * Written before {@link #lentSince} by the pools that detect leaks.
+     */
+    volatile Throwable borrowSite;
+    /**
+     * The {@link #lentSince} of the lease that has been reported as a leak; or {@link #NOT_LENT}.
+     * Only written by the leak detection passes.
+     */
+    volatile long reportedLease = NOT_LENT;
+
+    Slot(int id, T object) {
+        this.id = id;
+        this.object = object;
+    }
+
+    /**
+     * {@return the instance of the object}
+     */
+    public T get() {
+        return object;
+    }
+
+    void set(T object) {
+        this.object = object;
+    }
+
+    /**
+     * Removes the instance of the object from this slot.
+     *
+     * @return the instance; or {@code null} if already removed.
+     */
+    @SuppressWarnings("unchecked")
+    T take() {
+        return (T) OBJECT.getAndSet(this, null);
+    }
+
+    /**
+     * {@return {@code true} if this slot is lent}
+     */
+    boolean isLent() {
+        return status == LENT;
+    }
+
+    /**
+     * {@return the status of this slot}
+     */
+    int status() {
+        return status;
+    }
+
+    void setStatus(int status) {
+        this.status = status;
+    }
+
+    /**
+     * Atomically sets the status if it has the expected value.
+     *
+     * @param expected the expected status.
+     * @param status   the new status.
+     * @return {@code true} if successful.
+     */
+    boolean casStatus(int expected, int status) {
+        return STATUS.compareAndSet(this, expected, status);
+    }
+
+    /**
+     * Atomically ends the given lease if it is still the lease of this slot.
+     *
+     * @param since the {@link #lentSince} of the lease.
+     * @return {@code true} if successful.
+     */
+    boolean reclaimLease(long since) {
+        return LENT_SINCE.compareAndSet(this, since, RECLAIMED);
+    }
+
+    /**
+     * {@return the count of the leases of this slot that have been closed}
+     */
+    int generation() {
+        return generation;
+    }
+
+    /**
+     * Atomically advances the generation if it has the expected value.
+     *
+     * @param expected the expected generation.
+     * @return {@code true} if successful.
+     */
+    boolean advanceGeneration(int expected) {
+        return GENERATION.compareAndSet(this, expected, expected + 1);
+    }
+}
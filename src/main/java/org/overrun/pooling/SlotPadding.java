@@ -0,0 +1,33 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * The padding in front of the fields of a {@link Slot}.
+ * <p>
+ * The fields of a superclass are laid out before the fields of its subclasses, so these fields keep the hot fields
+ * of a slot at least a cache line away from the fields of the slot allocated just before it. The slots of a pool are
+ * usually allocated one after another, and without the padding, borrowing a slot would invalidate the cache line of
+ * its neighbour in the other cores.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+@SuppressWarnings("unused")
+abstract class SlotPadding {
+    private long p0, p1, p2, p3, p4, p5, p6;
+}
@@ -0,0 +1,1083 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The lock-free core of the growable pools.
+ * <p>
+ * The slots are stored in a {@link SlotTable} indexed by their id, and the ids of the idle slots are kept in
+ * {@link IndexShards}. An evicted slot keeps its id and only drops its object; when it is borrowed next time,
+ * its id is moved to the vacant stack and reused by the next growth, so the ids are never moved or reused
+ * by another slot.
+ *
+ * @param <S> the type of the slots.
+ * @param <T> the type of the instances.
+ * @author squid233
+ * @since 0.1.0
+ */
+final class SlotPool<S extends Slot<T>, T extends Poolable> implements Recycler<S> {
+    private final SlotTable<S> states;
+    private final IndexLinks links;
+    private final IndexShards free;
+    private final IndexStack vacant;
+    private final AtomicInteger size = new AtomicInteger();
+    private final Supplier<T> constructor;
+    private final Factory<S, T> factory;
+    private final boolean trackIdle;
+    private final Permits permits;
+    private final Permits sharedPermits;
+    private final int weight;
+    private final WaitQueue<S> waiters;
+    private final PoolMetrics metrics;
+    private final boolean timed;
+    private final ResetConfig deferredReset;
+    private final LeakDetector leaks;
+    private int frequency;
+    private int epoch;
+    private final boolean validateOnBorrow;
+    private final boolean validateOnReturn;
+    private final int idleBatchSize;
+    private final Consumer<T> cleanupAction;
+
+    /**
+     * Creates the slots of a slot pool.
+     *
+     * @param <S> the type of the slots.
+     * @param <T> the type of the instances.
+     */
+    @FunctionalInterface
+    interface Factory<S, T> {
+        S create(int id, T object);
+    }
+
+    /**
+     * Creates a slot pool.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param factory         the factory of the slots.
+     * @param shardCount      the count of the shards of the idle slots.
+     * @param initialCapacity the initial capacity.
+     * @param trackIdle       whether to record the time when a slot becomes idle, which is required by eviction.
+     * @param maxSize         the maximum count of the objects.
+     * @param sharedPermits   the permits shared with other slot pools; may be {@code null}.
+     * @param weight          the count of the shared permits taken by each object.
+     * @param waitable        whether the borrowers can wait with {@link #await(long)}.
+     * @param metrics         the metrics; may be {@code null}.
+     * @param deferredReset   the deferred reset configuration; or {@code null} to reset the objects on borrow.
+     * @param leaks           the leak detector; may be {@code null}.
+     * @param validation      the validation configuration; may be {@code null}.
+     * @param cleanupAction   the cleanup action that receives the invalid objects; may be {@code null}.
+     */
+    SlotPool(Supplier<T> constructor,
+             Factory<S, T> factory,
+             int shardCount,
+             int initialCapacity,
+             boolean trackIdle,
+             int maxSize,
+             Permits sharedPermits,
+             int weight,
+             boolean waitable,
+             PoolMetrics metrics,
+             ResetConfig deferredReset,
+             LeakDetector leaks,
+             ValidationConfig validation,
+             Consumer<T> cleanupAction) {
+        this.links = new IndexLinks(initialCapacity);
+        this.states = new SlotTable<>(initialCapacity);
+        this.free = new IndexShards(shardCount, links);
+        this.vacant = new IndexStack(links);
+        this.constructor = constructor;
+        this.factory = factory;
+        this.trackIdle = trackIdle;
+        this.permits = new Permits(maxSize);
+        this.sharedPermits = sharedPermits;
+        this.weight = weight;
+        this.waiters = waitable ? new WaitQueue<>() : null;
+        this.metrics = metrics;
+        this.timed = metrics != null && metrics.recordsLatency();
+        this.deferredReset = deferredReset;
+        this.leaks = leaks;
+        this.validateOnBorrow = validation != null && validation.onBorrow();
+        this.validateOnReturn = validation != null && validation.onReturn();
+        this.idleBatchSize = validation != null ? validation.idleBatchSize() : 0;
+        this.cleanupAction = cleanupAction;
+    }
+
+    /**
+     * Creates an unbounded slot pool.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param factory         the factory of the slots.
+     * @param shardCount      the count of the shards of the idle slots.
+     * @param initialCapacity the initial capacity.
+     * @param trackIdle       whether to record the time when a slot becomes idle, which is required by eviction.
+     * @param metrics         the metrics; may be {@code null}.
+     * @param deferredReset   the deferred reset configuration; or {@code null} to reset the objects on borrow.
+     * @param leaks           the leak detector; may be {@code null}.
+     * @param validation      the validation configuration; may be {@code null}.
+     * @param cleanupAction   the cleanup action that receives the invalid objects; may be {@code null}.
+     */
+    SlotPool(Supplier<T> constructor,
+             Factory<S, T> factory,
+             int shardCount,
+             int initialCapacity,
+             boolean trackIdle,
+             PoolMetrics metrics,
+             ResetConfig deferredReset,
+             LeakDetector leaks,
+             ValidationConfig validation,
+             Consumer<T> cleanupAction) {
+        this(constructor,
+            factory,
+            shardCount,
+            initialCapacity,
+            trackIdle,
+            Integer.MAX_VALUE,
+            null,
+            1,
+            false,
+            metrics,
+            deferredReset,
+            leaks,
+            validation,
+            cleanupAction);
+    }
+
+    boolean hasRemaining() {
+        return !free.isEmpty();
+    }
+
+    /**
+     * {@return the count of the objects of this pool, idle or lent}
+     */
+    int size() {
+        return permits.count();
+    }
+
+    /**
+     * {@return {@code true} if the count of the objects of this pool has reached its own maximum}
+     */
+    boolean isFull() {
+        return permits.count() >= permits.max();
+    }
+
+    /**
+     * {@return the count of the shared permits taken by each object}
+     */
+    int weight() {
+        return weight;
+    }
+
+    /**
+     * Counts a borrow of this pool in its frequency, which is halved for each epoch that has passed since the
+     * previous count. The count is racy, since it only ranks the pools.
+     *
+     * @param epoch the current epoch.
+     */
+    void touch(int epoch) {
+        final int last = this.epoch;
+        if (last != epoch) {
+            frequency = age(frequency, epoch - last);
+            this.epoch = epoch;
+        }
+        if (frequency != Integer.MAX_VALUE) frequency++;
+    }
+
+    /**
+     * {@return the frequency of the borrows of this pool, aged to the given epoch}
+     *
+     * @param epoch the current epoch.
+     */
+    int frequency(int epoch) {
+        return age(frequency, epoch - this.epoch);
+    }
+
+    private static int age(int frequency, int epochs) {
+        return epochs >= 31 ? 0 : frequency >>> epochs;
+    }
+
+    /**
+     * Borrows an idle slot, or creates a new object.
+     *
+     * @return the slot; or {@code null} if no slot is idle and the capacity is exceeded.
+     */
+    S borrow() {
+        final S state = borrowIdle();
+        return state != null ? state : borrowNew();
+    }
+
+    /**
+     * Borrows an idle slot without creating a new object.
+     *
+     * @return the slot; or {@code null} if no slot is idle.
+     */
+    S borrowIdle() {
+        final S state = poll(true);
+        if (state != null) {
+            borrowed(state);
+        }
+        return state;
+    }
+
+    /**
+     * Creates a new object without taking an idle slot.
+     *
+     * @return the slot; or {@code null} if the capacity is exceeded.
+     */
+    S borrowNew() {
+        if (metrics != null) metrics.onMiss();
+        final S state = grow();
+        if (state != null) {
+            borrowed(state);
+        }
+        return state;
+    }
+
+    private void borrowed(S state) {
+        if (metrics != null) metrics.onBorrow();
+        if (leaks != null) leaks.onBorrow(state);
+    }
+
+    private void reset(T t) {
+        if (timed) {
+            final long start = System.nanoTime();
+            t.reset();
+            metrics.onReset(System.nanoTime() - start);
+        } else {
+            t.reset();
+        }
+    }
+
+    /**
+     * Borrows an idle slot.
+     *
+     * @param reset whether to reset the object, unless it has been reset when returned.
+     * @return the slot; or {@code null} if no slot is idle.
+     */
+    private S poll(boolean reset) {
+        int id;
+        while ((id = free.pop()) != IndexStack.EMPTY) {
+            final S state = states.get(id);
+            if (!state.casStatus(Slot.IDLE, Slot.LENT)) {
+                // the evictor is removing the object; it will be idle again shortly
+                free.push(id);
+                Thread.onSpinWait();
+                continue;
+            }
+            state.idleSince = Slot.NOT_IDLE;
+            final T t = state.get();
+            if (t == null) {
+                // evicted; the slot is held by the pool until the next growth fills it
+                state.setStatus(Slot.HELD);
+                vacant.push(id);
+                continue;
+            }
+            if (reset) {
+                reuse(state, t);
+            }
+            return state;
+        }
+        return null;
+    }
+
+    /**
+     * Prepares the object of a reused slot for its borrower: replaces it if it is invalid, or resets it unless
+     * it has been reset when returned.
+     *
+     * @param state the slot, which is lent.
+     * @param t     the object.
+     */
+    private void reuse(S state, T t) {
+        if (validateOnBorrow && !t.isValid()) {
+            replace(state, t);
+        } else if (deferredReset == null) {
+            reset(t);
+        }
+    }
+
+    /**
+     * Replaces the invalid object of a borrowed slot with a new object, which takes over its permit.
+     * If the constructor fails, the slot is discarded and the exception is rethrown.
+     *
+     * @param state the slot, which is lent.
+     * @param t     the invalid object.
+     */
+    private void replace(S state, T t) {
+        final T replacement;
+        try {
+            replacement = newObject();
+        } catch (Throwable e) {
+            invalidate(state);
+            throw e;
+        }
+        state.set(replacement);
+        if (metrics != null) metrics.onDestroy();
+        if (cleanupAction != null) cleanupAction.accept(t);
+    }
+
+    private boolean tryAcquireShared() {
+        return weight == 1 ? sharedPermits.tryAcquire() : sharedPermits.tryAcquire(weight, true) != 0;
+    }
+
+    private boolean tryAcquirePermit() {
+        if (!permits.tryAcquire()) return false;
+        if (sharedPermits != null && !tryAcquireShared()) {
+            permits.release();
+            return false;
+        }
+        return true;
+    }
+
+    private void releasePermit() {
+        permits.release();
+        if (sharedPermits != null) {
+            sharedPermits.release(weight);
+        }
+    }
+
+    private int tryAcquirePermits(int n, boolean all) {
+        int k = permits.tryAcquire(n, all);
+        if (k != 0 && sharedPermits != null) {
+            final int units = sharedPermits.tryAcquire((int) Math.min(Integer.MAX_VALUE, (long) k * weight), all);
+            final int shared = units / weight;
+            // a partial weight is of no use
+            if (units % weight != 0) sharedPermits.release(units % weight);
+            if (shared < k) {
+                permits.release(k - shared);
+                k = shared;
+            }
+        }
+        return k;
+    }
+
+    private void releasePermits(int n) {
+        permits.release(n);
+        if (sharedPermits != null) {
+            sharedPermits.release(n * weight);
+        }
+    }
+
+    /**
+     * Creates a new object in a vacant slot or in a new slot.
+     *
+     * @return the slot; or {@code null} if the capacity is exceeded.
+     */
+    private S grow() {
+        return tryAcquirePermit() ? create() : null;
+    }
+
+    /**
+     * Constructs a new object.
+     *
+     * @return the object.
+     */
+    private T newObject() {
+        final long start = timed ? System.nanoTime() : 0L;
+        final T t;
+        try {
+            t = Objects.requireNonNull(constructor.get());
+        } catch (Throwable e) {
+            if (metrics != null) metrics.onFailure();
+            throw e;
+        }
+        if (metrics != null) metrics.onCreate(timed ? System.nanoTime() - start : 0L);
+        return t;
+    }
+
+    /**
+     * Creates a new object with an acquired permit, which is released if the constructor fails.
+     *
+     * @return the slot.
+     */
+    private S create() {
+        final T t;
+        try {
+            t = newObject();
+        } catch (Throwable e) {
+            releasePermit();
+            throw e;
+        }
+        final int vacantId = vacant.pop();
+        if (vacantId != IndexStack.EMPTY) {
+            final S state = states.get(vacantId);
+            state.set(t);
+            state.setStatus(Slot.LENT);
+            return state;
+        }
+        final int id = size.getAndIncrement();
+        final S state = factory.create(id, t);
+        states.set(id, state);
+        return state;
+    }
+
+    /**
+     * Borrows up to the given count of slots.
+     * <p>
+     * The idle slots are taken in runs with a single CAS each, and the permits of the new objects are acquired
+     * with a single CAS. If {@code allOrNothing} is {@code true} and the capacity does not allow {@code n} slots,
+     * the taken slots are put back. If a constructor fails, all slots of the batch are put back and the exception
+     * is rethrown.
+     *
+     * @param n            the count of the slots.
+     * @param out          the collection to which the borrowed slots are added.
+     * @param allOrNothing whether to borrow either {@code n} slots or none.
+     * @return the count of the borrowed slots; or, if {@code allOrNothing} is {@code true} and the capacity is
+     * exceeded, the negated count of the slots that could not be created.
+     */
+    int borrow(int n, Collection<? super S> out, boolean allOrNothing) {
+        // the ids of the taken slots are chained through the links, from first to last
+        int first = IndexStack.EMPTY;
+        int last = IndexStack.EMPTY;
+        int reused = 0;
+        // the permits of the invalid objects, which are taken over by the new objects
+        int held = 0;
+        while (reused < n) {
+            final long run = free.popRun(n - reused);
+            int count = IndexStack.runCount(run);
+            if (count == 0) break;
+            for (int id = IndexStack.runTop(run); count > 0; count--) {
+                final int next = links.get(id) - 1;
+                final S state = states.get(id);
+                if (!state.casStatus(Slot.IDLE, Slot.LENT)) {
+                    // the evictor is removing the object; leave it to the next borrow
+                    free.push(id);
+                } else {
+                    state.idleSince = Slot.NOT_IDLE;
+                    final T t = state.get();
+                    if (t == null) {
+                        state.setStatus(Slot.HELD);
+                        vacant.push(id);
+                    } else if (validateOnBorrow && !t.isValid()) {
+                        // a vacant slot is held by the pool until it is filled
+                        state.take();
+                        state.setStatus(Slot.HELD);
+                        vacant.push(id);
+                        if (metrics != null) metrics.onDestroy();
+                        if (cleanupAction != null) cleanupAction.accept(t);
+                        held++;
+                    } else {
+                        if (first == IndexStack.EMPTY) first = id;
+                        else links.set(last, id + 1);
+                        last = id;
+                        reused++;
+                    }
+                }
+                id = next;
+            }
+        }
+        final int missing = n - reused;
+        if (held > missing) {
+            // replaced by other idle slots
+            releasePermits(held - missing);
+            held = missing;
+        }
+        int total = reused;
+        if (missing > 0) {
+            final int permitted = held + (missing > held ? tryAcquirePermits(missing - held, allOrNothing) : 0);
+            if (allOrNothing && permitted < missing) {
+                releasePermits(held);
+                restore(first, total);
+                return -missing;
+            }
+            for (int i = 0; i < permitted; i++) {
+                if (metrics != null) metrics.onMiss();
+                final S state;
+                try {
+                    state = create();
+                } catch (Throwable e) {
+                    releasePermits(permitted - i - 1);
+                    restore(first, total);
+                    throw e;
+                }
+                if (first == IndexStack.EMPTY) first = state.id;
+                else links.set(last, state.id + 1);
+                last = state.id;
+                total++;
+            }
+        }
+        for (int i = 0, id = first; i < total; i++) {
+            final int next = links.get(id) - 1;
+            final S state = states.get(id);
+            if (i < reused && deferredReset == null) {
+                reset(state.get());
+            }
+            if (metrics != null) metrics.onBorrow();
+            if (leaks != null) leaks.onBorrow(state);
+            out.add(state);
+            id = next;
+        }
+        return total;
+    }
+
+    /**
+     * Puts back the chained slots taken by a batch that failed.
+     *
+     * @param first the first id.
+     * @param count the count of the slots.
+     */
+    private void restore(int first, int count) {
+        if (count == 0) return;
+        final long now = trackIdle ? System.nanoTime() : 0L;
+        int last = first;
+        for (int i = 0, id = first; i < count; i++) {
+            final int next = links.get(id) - 1;
+            final S state = states.get(id);
+            if (trackIdle) state.idleSince = now;
+            state.setStatus(Slot.IDLE);
+            last = id;
+            id = next;
+        }
+        freeRun(first, last, count);
+    }
+
+    /**
+     * Pushes a chained run of slots that are no longer lent, and then hands the slots to the waiters if any.
+     *
+     * @param first the first id.
+     * @param last  the last id.
+     * @param count the count of the slots.
+     */
+    private void freeRun(int first, int last, int count) {
+        free.pushRun(first, last);
+        // a thread might have started waiting before the push
+        for (int i = 0; i < count && waiters != null && !waiters.isEmpty(); i++) {
+            final S state = poll(false);
+            if (state == null) return;
+            passOn(state);
+        }
+    }
+
+    /**
+     * Creates an object in a vacant or new slot if this pool holds fewer than the given count of objects.
+     *
+     * @param count the count of the objects to reach.
+     * @return {@code true} if an object has been created.
+     */
+    private boolean prewarmOne(int count) {
+        if (!permits.tryAcquireBelow(count)) return false;
+        if (sharedPermits != null && !tryAcquireShared()) {
+            permits.release();
+            return false;
+        }
+        passOn(create());
+        return true;
+    }
+
+    /**
+     * Creates objects until this pool holds at least the given count of objects.
+     *
+     * @param count the count of the objects.
+     */
+    void prewarm(int count) {
+        Prewarm.checkCount(count);
+        Prewarm.run(() -> prewarmOne(count));
+    }
+
+    /**
+     * Creates objects in parallel until this pool holds at least the given count of objects.
+     *
+     * @param count    the count of the objects.
+     * @param executor the executor that runs the constructors.
+     * @return the future that is completed when the objects are ready.
+     */
+    CompletableFuture<Void> prewarmAsync(int count, Executor executor) {
+        Prewarm.checkCount(count);
+        return Prewarm.parallel(count - permits.count(), () -> prewarmOne(count), executor);
+    }
+
+    private S acquire() {
+        final S state = poll(false);
+        return state != null ? state : grow();
+    }
+
+    /**
+     * Waits until a slot is returned or the capacity is freed.
+     *
+     * @param nanos the maximum time to wait.
+     * @return the slot; or {@code null} if timed out.
+     * @throws InterruptedException if the current thread was interrupted while waiting.
+     */
+    S await(long nanos) throws InterruptedException {
+        final long start = timed ? System.nanoTime() : 0L;
+        final S state = waiters.await(this::acquire, this::passOn, nanos);
+        if (timed) metrics.onWait(System.nanoTime() - start);
+        if (state != null) {
+            prepare(state);
+        }
+        return state;
+    }
+
+    private void prepare(S state) {
+        reuse(state, state.get());
+        borrowed(state);
+    }
+
+    /**
+     * Returns a future that is completed when a slot is returned or the capacity is freed.
+     *
+     * @return the future of the slot.
+     */
+    CompletableFuture<S> awaitAsync() {
+        return waiters.awaitAsync(this::acquire, this::passOn, this::prepare);
+    }
+
+    /**
+     * Wakes up a waiter to retry after the capacity is freed.
+     *
+     * @return {@code true} if a waiter has been woken up.
+     */
+    boolean signal() {
+        return waiters != null && waiters.signal();
+    }
+
+    private void free(S state) {
+        if (trackIdle) {
+            state.idleSince = System.nanoTime();
+        }
+        free.push(state.id);
+    }
+
+    /**
+     * Returns the given slot, handing it to the first waiter if any.
+     *
+     * @param state the slot.
+     */
+    void release(S state) {
+        if (!state.casStatus(Slot.LENT, Slot.IDLE)) return;
+        if (metrics != null) metrics.onReturn();
+        if (leaks != null) leaks.onReturn(state);
+        if (validateOnReturn && !state.get().isValid()) {
+            invalidate(state);
+            return;
+        }
+        if (deferredReset == null) {
+            handOff(state);
+        } else if (deferredReset.mode() == ResetConfig.Mode.ON_RETURN) {
+            resetAndHandOff(state);
+        } else {
+            deferredReset.run(() -> resetAndHandOff(state));
+        }
+    }
+
+    @Override
+    public boolean cache(S state) {
+        if (!state.casStatus(Slot.LENT, Slot.IDLE)) return false;
+        if (metrics != null) metrics.onReturn();
+        if (leaks != null) leaks.onReturn(state);
+        if (validateOnReturn && !state.get().isValid()) {
+            invalidate(state);
+            return false;
+        }
+        if (deferredReset != null) {
+            // a cache lends the object again at once, so the reset cannot wait for the executor
+            try {
+                reset(state.get());
+            } catch (Throwable e) {
+                discard(state);
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void uncache(S state) {
+        passOn(state);
+    }
+
+    @Override
+    public void reborrow(S state) {
+        prepare(state);
+    }
+
+    /**
+     * Resets a returned slot, which is neither lent nor idle until it is handed off.
+     *
+     * @param state the slot.
+     */
+    private void resetAndHandOff(S state) {
+        try {
+            reset(state.get());
+        } catch (Throwable e) {
+            discard(state);
+            throw e;
+        }
+        handOff(state);
+    }
+
+    /**
+     * Discards the object of a returned slot whose reset has failed, and frees its capacity.
+     *
+     * @param state the slot, which is neither lent nor idle.
+     */
+    private void discard(S state) {
+        state.take();
+        // a vacant slot is held by the pool until it is filled
+        state.setStatus(Slot.HELD);
+        vacant.push(state.id);
+        releasePermit();
+        if (metrics != null) metrics.onDestroy();
+        signal();
+    }
+
+    /**
+     * Discards the invalid object of a slot, and passes it to the cleanup action.
+     *
+     * @param state the slot, which is held by the current thread.
+     */
+    private void invalidate(S state) {
+        final T t = state.get();
+        discard(state);
+        if (cleanupAction != null) cleanupAction.accept(t);
+    }
+
+    /**
+     * Resets the chained run of returned slots, and then frees them.
+     *
+     * @param first the first id.
+     * @param count the count of the slots.
+     */
+    private void resetRun(int first, int count) {
+        final long now = trackIdle ? System.nanoTime() : 0L;
+        int head = IndexStack.EMPTY;
+        int last = IndexStack.EMPTY;
+        int freed = 0;
+        Throwable failure = null;
+        for (int i = 0, id = first; i < count; i++) {
+            final int next = links.get(id) - 1;
+            final S state = states.get(id);
+            try {
+                reset(state.get());
+                if (trackIdle) state.idleSince = now;
+                if (head == IndexStack.EMPTY) head = id;
+                else links.set(last, id + 1);
+                last = id;
+                freed++;
+            } catch (RuntimeException | Error e) {
+                discard(state);
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+            id = next;
+        }
+        if (freed != 0) {
+            freeRun(head, last, freed);
+        }
+        if (failure instanceof RuntimeException e) throw e;
+        if (failure != null) throw (Error) failure;
+    }
+
+    /**
+     * Returns the given slots, handing them to the waiters if any.
+     * <p>
+     * If no thread is waiting, the slots are pushed as a single run with one CAS; with a deferred reset,
+     * the run is reset before it is pushed. The slots that are not lent are ignored.
+     *
+     * @param returned the slots.
+     */
+    void releaseAll(Iterable<? extends S> returned) {
+        final long now = trackIdle ? System.nanoTime() : 0L;
+        int first = IndexStack.EMPTY;
+        int last = IndexStack.EMPTY;
+        int count = 0;
+        for (S state : returned) {
+            if (!state.casStatus(Slot.LENT, Slot.IDLE)) continue;
+            if (metrics != null) metrics.onReturn();
+            if (leaks != null) leaks.onReturn(state);
+            if (validateOnReturn && !state.get().isValid()) {
+                invalidate(state);
+                continue;
+            }
+            if (deferredReset == null) {
+                if (waiters != null && !waiters.isEmpty()) {
+                    handOff(state);
+                    continue;
+                }
+                if (trackIdle) state.idleSince = now;
+            }
+            if (first == IndexStack.EMPTY) first = state.id;
+            else links.set(last, state.id + 1);
+            last = state.id;
+            count++;
+        }
+        if (count == 0) return;
+        if (deferredReset == null) {
+            freeRun(first, last, count);
+        } else if (deferredReset.mode() == ResetConfig.Mode.ON_RETURN) {
+            resetRun(first, count);
+        } else {
+            final int head = first;
+            final int size = count;
+            deferredReset.run(() -> resetRun(head, size));
+        }
+    }
+
+    /**
+     * Passes a slot taken by a waiter that does not need it to the next waiter, or puts it back.
+     *
+     * @param state the lent slot.
+     */
+    private void passOn(S state) {
+        state.setStatus(Slot.IDLE);
+        handOff(state);
+    }
+
+    private void handOff(S state) {
+        if (waiters == null) {
+            free(state);
+            return;
+        }
+        while (true) {
+            if (!waiters.isEmpty()) {
+                state.setStatus(Slot.LENT);
+                if (waiters.offer(state)) return;
+                state.setStatus(Slot.IDLE);
+            }
+            free(state);
+            // a thread might have started waiting after the check above but before the push
+            if (waiters.isEmpty()) return;
+            state = poll(false);
+            if (state == null) return;
+            state.setStatus(Slot.IDLE);
+        }
+    }
+
+    private static boolean isIdle(Slot<?> state) {
+        return state.status() == Slot.IDLE && state.idleSince != Slot.NOT_IDLE && state.get() != null;
+    }
+
+    /**
+     * Removes the object of an idle slot.
+     *
+     * @param state the slot.
+     * @param since the expected time when the slot became idle.
+     * @return the object; or {@code null} if the slot has been borrowed.
+     */
+    private T tryEvict(S state, long since) {
+        if (!state.casStatus(Slot.IDLE, Slot.HELD)) return null;
+        // the slot might have been borrowed and returned since the check
+        if (state.idleSince != since) {
+            state.setStatus(Slot.IDLE);
+            return null;
+        }
+        final T t = state.take();
+        state.idleSince = Slot.NOT_IDLE;
+        state.setStatus(Slot.IDLE);
+        if (t != null) {
+            releasePermit();
+            if (metrics != null) metrics.onDestroy();
+        }
+        return t;
+    }
+
+    /**
+     * Evicts the idle objects.
+     * <p>
+     * An evicted slot is held by the evictor only while its object is being removed, and the cleanup action
+     * runs after the slot has been released.
+     *
+     * @param config        the eviction configuration.
+     * @param cleanupAction the cleanup action; may be {@code null}.
+     * @return the count of the evicted objects.
+     */
+    int evict(EvictionConfig config, Consumer<T> cleanupAction) {
+        final int count = size.get();
+        int idle = 0;
+        for (int i = 0; i < count; i++) {
+            final S state = states.get(i);
+            if (state != null && isIdle(state)) idle++;
+        }
+        final long now = System.nanoTime();
+        final long timeout = config.idleTimeoutNanos();
+        int evicted = 0;
+        for (int i = 0; i < count && idle > config.minIdle(); i++) {
+            final S state = states.get(i);
+            if (state == null || !isIdle(state)) continue;
+            final long since = state.idleSince;
+            if (idle <= config.maxIdle() && now - since < timeout) continue;
+            final T t = tryEvict(state, since);
+            if (t == null) continue;
+            idle--;
+            evicted++;
+            if (cleanupAction != null) {
+                cleanupAction.accept(t);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Evicts the object of any idle slot in constant time.
+     * <p>
+     * The slot is taken from the top of the idle stacks and becomes vacant at once, since the objects of a pool
+     * are interchangeable.
+     *
+     * @return the object; or {@code null} if no slot is idle.
+     */
+    T evictAny() {
+        int id;
+        while ((id = free.pop()) != IndexStack.EMPTY) {
+            final S state = states.get(id);
+            if (!state.casStatus(Slot.IDLE, Slot.HELD)) {
+                // the evictor is removing the object; it will be idle again shortly
+                free.push(id);
+                return null;
+            }
+            state.idleSince = Slot.NOT_IDLE;
+            // a vacant slot is held by the pool until it is filled
+            final T t = state.take();
+            vacant.push(id);
+            if (t != null) {
+                releasePermit();
+                if (metrics != null) metrics.onDestroy();
+                return t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@return the idle slot that has been idle for the longest time; or {@code null} if no slot is idle}
+     */
+    S leastRecentlyUsed() {
+        S oldest = null;
+        long oldestSince = 0L;
+        for (int i = 0, c = size.get(); i < c; i++) {
+            final S state = states.get(i);
+            if (state == null || !isIdle(state)) continue;
+            final long since = state.idleSince;
+            if (oldest == null || since - oldestSince < 0) {
+                oldest = state;
+                oldestSince = since;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Evicts the object of the given slot if it is still idle.
+     *
+     * @param state the slot returned by {@link #leastRecentlyUsed()}.
+     * @return the object; or {@code null} if the slot is no longer idle.
+     */
+    T evictIdle(S state) {
+        final long since = state.idleSince;
+        return since != Slot.NOT_IDLE ? tryEvict(state, since) : null;
+    }
+
+    /**
+     * Validates a batch of the idle slots that would be borrowed next.
+     * <p>
+     * The batch is taken from the idle stacks with a single CAS, so the slots cannot be borrowed or evicted while
+     * they are checked; the valid slots are put back in the same order and keep their idle time.
+     *
+     * @return the count of the destroyed objects; or 0 if idle validation is disabled.
+     */
+    int validateIdle() {
+        if (idleBatchSize == 0) return 0;
+        final long run = free.popRun(idleBatchSize);
+        int first = IndexStack.EMPTY;
+        int last = IndexStack.EMPTY;
+        int kept = 0;
+        int destroyed = 0;
+        int count = IndexStack.runCount(run);
+        for (int id = IndexStack.runTop(run); count > 0; count--) {
+            final int next = links.get(id) - 1;
+            final S state = states.get(id);
+            if (!state.casStatus(Slot.IDLE, Slot.HELD)) {
+                // the evictor is removing the object; it will be idle again shortly
+                free.push(id);
+            } else {
+                final T t = state.get();
+                if (t == null) {
+                    // evicted; the slot is filled by the next growth
+                    state.idleSince = Slot.NOT_IDLE;
+                    vacant.push(id);
+                } else if (t.isValid()) {
+                    state.setStatus(Slot.IDLE);
+                    if (first == IndexStack.EMPTY) first = id;
+                    else links.set(last, id + 1);
+                    last = id;
+                    kept++;
+                } else {
+                    state.idleSince = Slot.NOT_IDLE;
+                    invalidate(state);
+                    destroyed++;
+                }
+            }
+            id = next;
+        }
+        if (kept != 0) {
+            freeRun(first, last, kept);
+        }
+        return destroyed;
+    }
+
+    /**
+     * Reports the slots that have been lent for too long, and reclaims them if the leak detector specifies.
+     * <p>
+     * The borrower of a reclaimed slot keeps the slot and its object, and a new vacant slot takes its id,
+     * so returning the old slot later is ignored.
+     *
+     * @return the count of the reclaimed slots; or 0 if leak detection is disabled.
+     */
+    int detectLeaks() {
+        if (leaks == null) return 0;
+        final long now = System.nanoTime();
+        int reclaimed = 0;
+        for (int i = 0, c = size.get(); i < c; i++) {
+            final S state = states.get(i);
+            if (!leaks.check(state, now)) continue;
+            // a vacant slot is held by the pool until it is filled
+            final S vacantState = factory.create(state.id, null);
+            vacantState.setStatus(Slot.HELD);
+            states.set(state.id, vacantState);
+            vacant.push(state.id);
+            releasePermit();
+            if (metrics != null) {
+                metrics.onReturn();
+                metrics.onDestroy();
+            }
+            reclaimed++;
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Executes the cleanup action on all objects.
+     *
+     * @param cleanupAction the cleanup action.
+     */
+    void cleanup(Consumer<T> cleanupAction) {
+        for (int i = 0, c = size.get(); i < c; i++) {
+            final S state = states.get(i);
+            if (state == null) continue;
+            final T t = state.get();
+            if (t != null) {
+                cleanupAction.accept(t);
+            }
+        }
+    }
+}
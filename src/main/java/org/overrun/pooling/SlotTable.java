@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A growable table of elements indexed by the id of the slots.
+ * <p>
+ * The table never moves the elements when it grows, so it can be read and written without locks.
+ *
+ * @param <E> the type of the elements.
+ * @author squid233
+ * @since 0.1.0
+ */
+final class SlotTable<E> {
+    private final int shift;
+    private final AtomicReferenceArray<AtomicReferenceArray<E>> segments;
+
+    /**
+     * Creates a table whose first segment holds the given count of elements.
+     *
+     * @param initialCapacity the initial capacity.
+     */
+    SlotTable(int initialCapacity) {
+        this.shift = Segments.shift(initialCapacity);
+        this.segments = new AtomicReferenceArray<>(Segments.count(shift));
+        this.segments.set(0, new AtomicReferenceArray<>(Segments.length(0, shift)));
+    }
+
+    private AtomicReferenceArray<E> segment(int segment) {
+        var array = segments.get(segment);
+        if (array == null) {
+            array = new AtomicReferenceArray<>(Segments.length(segment, shift));
+            if (!segments.compareAndSet(segment, null, array)) {
+                array = segments.get(segment);
+            }
+        }
+        return array;
+    }
+
+    /**
+     * {@return the element at the given index, or {@code null} if absent}
+     *
+     * @param index the index.
+     */
+    E get(int index) {
+        final var array = segments.get(Segments.segment(index, shift));
+        return array != null ? array.get(Segments.offset(index, shift)) : null;
+    }
+
+    /**
+     * Sets the element at the given index.
+     *
+     * @param index   the index.
+     * @param element the element.
+     */
+    void set(int index, E element) {
+        segment(Segments.segment(index, shift)).set(Segments.offset(index, shift), element);
+    }
+
+    /**
+     * Sets the element at the given index if the current element is the expected one.
+     *
+     * @param index    the index.
+     * @param expected the expected element.
+     * @param element  the new element.
+     * @return {@code true} if successful.
+     */
+    boolean compareAndSet(int index, E expected, E element) {
+        return segment(Segments.segment(index, shift)).compareAndSet(Segments.offset(index, shift), expected, element);
+    }
+}
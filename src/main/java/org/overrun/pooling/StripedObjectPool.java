@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A growable object pool that splits its free objects across several shards.
+ * <p>
+ * Each thread borrows from and returns to the shard chosen by the hash of the thread, and steals from
+ * the other shards only if its own shard is empty. Each shard is a lock-free stack, so the throughput
+ * scales with the count of cores instead of being limited by a single lock.
+ * <p>
+ * If a {@link LeakConfig} is configured, {@link #detectLeaks()} reports the objects that have been lent for too long,
+ * and reclaims them if the configuration specifies.
+ * <p>
+ * If a {@link ValidationConfig} is configured, the invalid objects are replaced on borrow or dropped on return,
+ * and {@link #validateIdle()} checks a batch of the idle objects in the background.
+ *
+ * @param <T> the type of the instances in this pool.
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class StripedObjectPool<T extends Poolable> implements Pool<T>, LeakDetectable, Validatable {
+    private final Consumer<T> cleanupAction;
+    private final SlotPool<PoolObjectState<T>, T> states;
+
+    /**
+     * Creates a striped object pool with the given shard count, initial capacity, cleanup action and configuration.
+     * <p>
+     * This pool supports leak detection, validation, metrics and deferred reset.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool, which also receives the invalid objects.
+     * @param shardCount      the count of the shards, which is rounded up to a power of two.
+     * @param initialCapacity the initial capacity of this pool.
+     * @param config          the configuration of this pool.
+     */
+    public StripedObjectPool(Supplier<T> constructor,
+                             Consumer<T> cleanupAction,
+                             int shardCount,
+                             int initialCapacity,
+                             PoolConfig config) {
+        config.require("StripedObjectPool", false, false, false, true, true, false);
+        this.cleanupAction = cleanupAction;
+        this.states = new SlotPool<>(constructor,
+            PoolObjectState::new,
+            shardCount,
+            initialCapacity,
+            false,
+            config.metrics(),
+            config.reset(),
+            LeakDetector.of(config.leaks()),
+            config.validation(),
+            cleanupAction);
+    }
+
+    /**
+     * Creates a striped object pool with the given shard count, initial capacity and cleanup action.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool.
+     * @param shardCount      the count of the shards, which is rounded up to a power of two.
+     * @param initialCapacity the initial capacity of this pool.
+     */
+    public StripedObjectPool(Supplier<T> constructor, Consumer<T> cleanupAction, int shardCount, int initialCapacity) {
+        this(constructor, cleanupAction, shardCount, initialCapacity, PoolConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a striped object pool with one shard per available processor and the given initial capacity
+     * and cleanup action.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param cleanupAction   the cleanup action of this pool.
+     * @param initialCapacity the initial capacity of this pool.
+     */
+    public StripedObjectPool(Supplier<T> constructor, Consumer<T> cleanupAction, int initialCapacity) {
+        this(constructor, cleanupAction, IndexShards.defaultCount(), initialCapacity);
+    }
+
+    /**
+     * Creates a striped object pool with one shard per available processor and the given initial capacity.
+     *
+     * @param constructor     the constructor of the objects.
+     * @param initialCapacity the initial capacity of this pool.
+     */
+    public StripedObjectPool(Supplier<T> constructor, int initialCapacity) {
+        this(constructor, null, initialCapacity);
+    }
+
+    /**
+     * Creates a striped object pool with one shard per available processor.
+     *
+     * @param constructor the constructor of the objects.
+     */
+    public StripedObjectPool(Supplier<T> constructor) {
+        this(constructor, 10);
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        return states.hasRemaining();
+    }
+
+    @Override
+    public Result<T> borrow() {
+        return tryBorrow().result;
+    }
+
+    @Override
+    public PoolObjectState<T> tryBorrow() {
+        return states.borrow();
+    }
+
+    @Override
+    public int borrow(int n, Collection<? super PoolObjectState<T>> out, boolean allOrNothing) {
+        return Math.max(0, states.borrow(Batch.checkCount(n), out, allOrNothing));
+    }
+
+    /**
+     * {@return the hooks for the caches in front of this pool}
+     */
+    Recycler<PoolObjectState<T>> recycler() {
+        return states;
+    }
+
+    @Override
+    public void returning(PoolObjectState<T> state) {
+        states.release(state);
+    }
+
+    @Override
+    public void returnAll(Collection<? extends PoolObjectState<T>> states) {
+        this.states.releaseAll(states);
+    }
+
+    @Override
+    public void prewarm(int count) {
+        states.prewarm(count);
+    }
+
+    @Override
+    public CompletableFuture<Void> prewarmAsync(int count, Executor executor) {
+        return states.prewarmAsync(count, executor);
+    }
+
+    @Override
+    public int detectLeaks() {
+        return states.detectLeaks();
+    }
+
+    @Override
+    public int validateIdle() {
+        return states.validateIdle();
+    }
+
+    @Override
+    public void cleanup() {
+        if (cleanupAction != null) {
+            states.cleanup(cleanupAction);
+        }
+    }
+}
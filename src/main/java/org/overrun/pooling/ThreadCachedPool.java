@@ -0,0 +1,346 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An object pool that caches returned objects in a small per-thread magazine in front of another pool.
+ * <p>
+ * A thread borrows the object it returned last without touching the shared state of the underlying pool,
+ * and only goes to the underlying pool, or steals from the magazines of other threads, when its own magazine
+ * is empty. Magazines never block or take a lock.
+ * <p>
+ * With {@link CacheScope#THREAD}, each thread gets its own magazine in a {@link ThreadLocal}, and the magazines of
+ * terminated threads are given back to the underlying pool. With {@link CacheScope#STRIPE}, the threads share
+ * a fixed set of magazines chosen by the hash of the thread, which suits virtual threads: a million virtual threads
+ * would otherwise create a million magazines.
+ * <p>
+ * If the underlying pool is a pool of this module, the objects that go through the magazines are still validated,
+ * counted by the metrics, leased by the leak detection and reset as the underlying pool is configured, except that
+ * a deferred reset runs in the returning thread when the object is cached. The objects of any other pool are reset when they are borrowed
+ * from a magazine.
+ *
+ * @param <T> the type of the instances in this pool.
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class ThreadCachedPool<T extends Poolable> implements Pool<T> {
+    private static final int EXPUNGE_COUNT = 2;
+    private final Pool<T> pool;
+    private final Recycler<PoolObjectState<T>> recycler;
+    private final int magazineSize;
+    private final StealPolicy stealPolicy;
+    private final ConcurrentLinkedQueue<Magazine<T>> magazines = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Magazine<T>> localMagazine;
+    private final Magazine<T>[] stripes;
+
+    /**
+     * When a thread steals objects from the magazines of other threads.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public enum StealPolicy {
+        /**
+         * Never steals; objects in the magazine of a thread are only used by that thread.
+         */
+        NEVER,
+        /**
+         * Steals only if the underlying pool has no remaining object.
+         */
+        WHEN_EXHAUSTED,
+        /**
+         * Steals before going to the underlying pool.
+         */
+        BEFORE_POOL
+    }
+
+    /**
+     * Which threads share a magazine.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public enum CacheScope {
+        /**
+         * Each thread has its own magazine.
+         */
+        THREAD,
+        /**
+         * The threads share one magazine per available processor, chosen by the hash of the thread.
+         */
+        STRIPE
+    }
+
+    /**
+     * Creates a thread-cached pool in front of the given pool.
+     *
+     * @param pool         the underlying pool.
+     * @param magazineSize the maximum count of the objects cached by each magazine.
+     * @param stealPolicy  the steal policy.
+     * @param cacheScope   which threads share a magazine.
+     */
+    public ThreadCachedPool(Pool<T> pool, int magazineSize, StealPolicy stealPolicy, CacheScope cacheScope) {
+        if (magazineSize <= 0) {
+            throw new IllegalArgumentException("magazineSize must be positive: " + magazineSize);
+        }
+        this.pool = pool;
+        this.recycler = Recycler.of(pool);
+        this.magazineSize = magazineSize;
+        this.stealPolicy = stealPolicy;
+        if (cacheScope == CacheScope.STRIPE) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            final Magazine<T>[] stripes = new Magazine[1 << Segments.shift(IndexShards.defaultCount())];
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Magazine<>(null, magazineSize);
+                magazines.add(stripes[i]);
+            }
+            this.stripes = stripes;
+            this.localMagazine = null;
+        } else {
+            this.stripes = null;
+            this.localMagazine = ThreadLocal.withInitial(this::createMagazine);
+        }
+    }
+
+    /**
+     * Creates a thread-cached pool in front of the given pool, where each thread has its own magazine.
+     *
+     * @param pool         the underlying pool.
+     * @param magazineSize the maximum count of the objects cached by each thread.
+     * @param stealPolicy  the steal policy.
+     */
+    public ThreadCachedPool(Pool<T> pool, int magazineSize, StealPolicy stealPolicy) {
+        this(pool, magazineSize, stealPolicy, CacheScope.THREAD);
+    }
+
+    /**
+     * Creates a thread-cached pool in front of the given pool,
+     * which caches 8 objects for each thread and steals only if the underlying pool is exhausted.
+     *
+     * @param pool the underlying pool.
+     */
+    public ThreadCachedPool(Pool<T> pool) {
+        this(pool, 8, StealPolicy.WHEN_EXHAUSTED);
+    }
+
+    /**
+     * {@return the magazine of the current thread}
+     */
+    private Magazine<T> local() {
+        return stripes != null ? stripes[IndexShards.threadHash() & (stripes.length - 1)] : localMagazine.get();
+    }
+
+    private Magazine<T> createMagazine() {
+        expunge();
+        final var magazine = new Magazine<T>(Thread.currentThread(), magazineSize);
+        magazines.add(magazine);
+        return magazine;
+    }
+
+    /**
+     * Gives the magazines of terminated threads back to the underlying pool.
+     * Only a few magazines are checked each time, so that the cost is amortized over the thread creations.
+     */
+    private void expunge() {
+        for (int i = 0; i < EXPUNGE_COUNT; i++) {
+            final var magazine = magazines.poll();
+            if (magazine == null) return;
+            if (magazine.isAlive()) {
+                magazines.add(magazine);
+            } else {
+                drain(magazine);
+            }
+        }
+    }
+
+    private void drain(Magazine<T> magazine) {
+        PoolObjectState<T> state;
+        while ((state = magazine.poll()) != null) {
+            recycler.uncache(state);
+        }
+    }
+
+    private PoolObjectState<T> steal(Magazine<T> local) {
+        for (var magazine : magazines) {
+            if (magazine != local) {
+                final var state = magazine.poll();
+                if (state != null) return state;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasRemaining() {
+        if (!local().isEmpty() || pool.hasRemaining()) return true;
+        if (stealPolicy != StealPolicy.NEVER) {
+            for (var magazine : magazines) {
+                if (!magazine.isEmpty()) return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Result<T> borrow() {
+        final var state = poll();
+        return state != null ? state.result : pool.borrow();
+    }
+
+    @Override
+    public PoolObjectState<T> tryBorrow() {
+        final var state = poll();
+        return state != null ? state : pool.tryBorrow();
+    }
+
+    @Override
+    public CompletableFuture<PoolObjectState<T>> borrowAsync() {
+        final var state = poll();
+        return state != null ? CompletableFuture.completedFuture(state) : pool.borrowAsync();
+    }
+
+    /**
+     * Borrows from the magazine of the current thread, or steals from the others as the steal policy allows.
+     *
+     * @return the state; or {@code null} if the underlying pool should be used.
+     */
+    private PoolObjectState<T> poll() {
+        final var local = local();
+        var state = local.poll();
+        if (state == null && stealPolicy != StealPolicy.NEVER
+            && (stealPolicy == StealPolicy.BEFORE_POOL || !pool.hasRemaining())) {
+            state = steal(local);
+        }
+        if (state != null) {
+            recycler.reborrow(state);
+        }
+        return state;
+    }
+
+    /**
+     * Returns the result to the magazine of the current thread, or to the underlying pool if the magazine is full.
+     *
+     * @param state the state that holds the object instance.
+     */
+    @Override
+    public void returning(PoolObjectState<T> state) {
+        // a cached state is marked as idle, so that it cannot be returned twice,
+        // and it belongs to whoever marks it as lent first
+        if (!recycler.cache(state)) return;
+        if (!local().offer(state) && state.casStatus(Slot.IDLE, Slot.LENT)) {
+            recycler.uncache(state);
+        }
+    }
+
+    /**
+     * Creates objects in the underlying pool ahead of time.
+     *
+     * @param count the count of the objects, which is capped at the capacity of the underlying pool.
+     */
+    @Override
+    public void prewarm(int count) {
+        pool.prewarm(count);
+    }
+
+    /**
+     * Creates objects in the underlying pool ahead of time in the given executor.
+     *
+     * @param count    the count of the objects, which is capped at the capacity of the underlying pool.
+     * @param executor the executor that runs the constructors.
+     * @return the future that is completed when the objects are ready; or exceptionally if a constructor fails.
+     */
+    @Override
+    public CompletableFuture<Void> prewarmAsync(int count, Executor executor) {
+        return pool.prewarmAsync(count, executor);
+    }
+
+    /**
+     * Returns the objects in the magazine of the current thread to the underlying pool.
+     * <p>
+     * This is useful before a thread finishes its work, so that other threads can borrow the objects
+     * without stealing.
+     */
+    public void flush() {
+        drain(local());
+    }
+
+    /**
+     * Executes the cleanup action of the underlying pool.
+     */
+    @Override
+    public void cleanup() {
+        pool.cleanup();
+    }
+
+    /**
+     * The cache of a thread or a stripe. The owner takes the slots from the top; other threads may steal any slot.
+     *
+     * @param <T> the type of the instances.
+     */
+    private static final class Magazine<T extends Poolable> {
+        private final WeakReference<Thread> owner;
+        private final AtomicReferenceArray<PoolObjectState<T>> slots;
+
+        /**
+         * Creates a magazine.
+         *
+         * @param owner the owner thread; or {@code null} for a stripe, which is never expunged.
+         * @param size  the size.
+         */
+        Magazine(Thread owner, int size) {
+            this.owner = owner != null ? new WeakReference<>(owner) : null;
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        boolean isAlive() {
+            if (owner == null) return true;
+            final Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        boolean isEmpty() {
+            for (int i = 0, c = slots.length(); i < c; i++) {
+                if (slots.get(i) != null) return false;
+            }
+            return true;
+        }
+
+        boolean offer(PoolObjectState<T> state) {
+            for (int i = 0, c = slots.length(); i < c; i++) {
+                if (slots.get(i) == null && slots.compareAndSet(i, null, state)) return true;
+            }
+            return false;
+        }
+
+        PoolObjectState<T> poll() {
+            for (int i = slots.length() - 1; i >= 0; i--) {
+                final var state = slots.get(i);
+                // the state might have been taken by the underlying pool
+                if (state != null && slots.compareAndSet(i, state, null) && state.casStatus(Slot.IDLE, Slot.LENT)) {
+                    return state;
+                }
+            }
+            return null;
+        }
+    }
+}
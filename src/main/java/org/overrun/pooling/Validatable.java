@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A pool that can check its idle objects in the background.
+ * <p>
+ * Validation is enabled by a {@link ValidationConfig}; the invalid objects are passed to the cleanup action
+ * of the pool. A validation pass never blocks the borrowers.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public interface Validatable {
+    /**
+     * Runs a validation pass, which takes a batch of the idle objects that would be borrowed next, destroys the
+     * invalid ones and puts the others back.
+     *
+     * @return the count of the destroyed objects; or 0 if idle validation is disabled.
+     */
+    int validateIdle();
+
+    /**
+     * Runs {@link #validateIdle()} periodically with the given executor.
+     * <p>
+     * An exception thrown by a validation pass is passed to the uncaught exception handler
+     * and does not cancel the later passes.
+     *
+     * @param executor the executor.
+     * @param period   the period between the passes.
+     * @return the future that cancels the validation.
+     */
+    default ScheduledFuture<?> scheduleValidation(ScheduledExecutorService executor, Duration period) {
+        return Evictor.schedule(executor, period, this::validateIdle);
+    }
+
+    /**
+     * Runs {@link #validateIdle()} periodically with a daemon thread shared by all pools.
+     *
+     * @param period the period between the passes.
+     * @return the future that cancels the validation.
+     */
+    default ScheduledFuture<?> scheduleValidation(Duration period) {
+        return scheduleValidation(Evictor.EXECUTOR, period);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+/**
+ * The configuration of the validation of the objects, which finds the objects that can no longer be used with
+ * {@link Poolable#isValid()}.
+ * <p>
+ * An object that is invalid on borrow is passed to the cleanup action of the pool and replaced with a new object
+ * in the same slot, so the borrower only sees the new object; if the constructor fails, the borrow fails as if no
+ * object was idle. An object that is invalid on return is passed to the cleanup action and its capacity is freed.
+ * <p>
+ * A validation pass, run by {@link Validatable#validateIdle()}, checks up to {@code idleBatchSize} idle objects that
+ * would be borrowed next, so that the check runs in the background instead of in the borrowers. The checked objects
+ * cannot be borrowed while the pass runs, so the batches should be small.
+ *
+ * @param onBorrow      whether to validate the idle objects when they are borrowed.
+ * @param onReturn      whether to validate the objects when they are returned.
+ * @param idleBatchSize the maximum count of the idle objects checked by a validation pass; 0 disables the passes.
+ * @author squid233
+ * @since 0.1.0
+ */
+public record ValidationConfig(boolean onBorrow, boolean onReturn, int idleBatchSize) {
+    /**
+     * Creates a validation configuration.
+     *
+     * @param onBorrow      whether to validate the idle objects when they are borrowed.
+     * @param onReturn      whether to validate the objects when they are returned.
+     * @param idleBatchSize the maximum count of the idle objects checked by a validation pass; 0 disables the passes.
+     */
+    public ValidationConfig {
+        if (idleBatchSize < 0) {
+            throw new IllegalArgumentException("idleBatchSize must not be negative: " + idleBatchSize);
+        }
+    }
+
+    /**
+     * Creates a validation configuration that only checks the idle objects in the background.
+     *
+     * @param idleBatchSize the maximum count of the idle objects checked by a validation pass.
+     */
+    public ValidationConfig(int idleBatchSize) {
+        this(false, false, idleBatchSize);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A FIFO queue of threads and futures waiting for a state.
+ * <p>
+ * A returning thread hands its state directly to the first waiter with {@link #offer(Object)},
+ * so only one waiter is woken up for each returned state. The waiting threads park with {@link LockSupport},
+ * which does not pin the carrier of a virtual thread, and the waiting futures are completed in the default async
+ * executor of {@link CompletableFuture} when a state is handed to them.
+ *
+ * @param <S> the type of the states.
+ * @author squid233
+ * @since 0.1.0
+ */
+final class WaitQueue<S> {
+    private final ConcurrentLinkedQueue<Waiter<S>> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * {@return {@code true} if no thread is waiting}
+     */
+    boolean isEmpty() {
+        return waiters.isEmpty();
+    }
+
+    /**
+     * Hands the given state to the first waiter.
+     *
+     * @param state the state.
+     * @return {@code true} if a waiter has taken the state.
+     */
+    boolean offer(S state) {
+        Waiter<S> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.complete(state)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Wakes up the first waiter without a state, so that it tries to acquire a state again.
+     * This is used when the acquisition might succeed for a reason other than a returned state,
+     * for example, when some capacity has been freed.
+     *
+     * @return {@code true} if a waiter has been woken up.
+     */
+    boolean signal() {
+        Waiter<S> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.complete(Waiter.RETRY)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Waits until a state is handed to the current thread.
+     * <p>
+     * The state is acquired once more after enqueuing, so that a state released between the failed acquisition
+     * of the caller and the enqueuing is not missed. The releaser must check this queue after making its state
+     * available to the acquirer.
+     *
+     * @param acquire the function that tries to acquire a state; returns {@code null} if failed.
+     * @param release the function that releases a state that was acquired while another one was handed.
+     * @param nanos   the maximum time to wait, or a negative value to wait forever.
+     * @return the state; or {@code null} if timed out.
+     * @throws InterruptedException if the current thread was interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    S await(Supplier<S> acquire, Consumer<S> release, long nanos) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        final long deadline = nanos >= 0 ? System.nanoTime() + nanos : 0L;
+        while (true) {
+            final var waiter = new ThreadWaiter<S>(Thread.currentThread());
+            waiters.add(waiter);
+            final S acquired = acquire.get();
+            if (acquired != null) {
+                if (waiter.cancel()) {
+                    waiters.remove(waiter);
+                    return acquired;
+                }
+                if (waiter.result() == Waiter.RETRY) {
+                    // pass the signal on, since this thread does not need it
+                    signal();
+                    return acquired;
+                }
+                release.accept(acquired);
+                return (S) waiter.result();
+            }
+            boolean timedOut = false;
+            while (!waiter.isDone()) {
+                if (Thread.interrupted()) {
+                    if (waiter.cancel()) {
+                        waiters.remove(waiter);
+                        throw new InterruptedException();
+                    }
+                    if (waiter.result() == Waiter.RETRY) {
+                        signal();
+                        throw new InterruptedException();
+                    }
+                    // the state has been handed; keep it and preserve the interrupt status
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (nanos < 0) {
+                    LockSupport.park(this);
+                } else {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        if (waiter.cancel()) {
+                            waiters.remove(waiter);
+                            return null;
+                        }
+                        timedOut = true;
+                        break;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+            final Object result = waiter.result();
+            if (result != Waiter.RETRY) return (S) result;
+            if (timedOut) {
+                final S state = acquire.get();
+                if (state == null) signal();
+                return state;
+            }
+        }
+    }
+
+    /**
+     * Returns a future that is completed with a state when one is handed to it.
+     * <p>
+     * The future is completed in the default async executor, so the returning thread never runs the dependent
+     * actions, which would otherwise return their states and complete the next futures recursively.
+     * A cancelled future is skipped, and a state handed to a future that has just been cancelled is released again.
+     *
+     * @param acquire the function that tries to acquire a state; returns {@code null} if failed.
+     * @param release the function that releases a state that is not needed.
+     * @param prepare the action that prepares a state before the future is completed with it; if it throws,
+     *                the future is completed exceptionally, and the action is responsible for the state.
+     * @return the future.
+     */
+    CompletableFuture<S> awaitAsync(Supplier<S> acquire, Consumer<S> release, Consumer<S> prepare) {
+        final var future = new CompletableFuture<S>();
+        enqueue(new FutureWaiter<>(this, future, acquire, release, prepare));
+        return future;
+    }
+
+    /**
+     * Enqueues a future waiter, or completes it if a state can be acquired.
+     *
+     * @param waiter the waiter that has not been enqueued.
+     */
+    private void enqueue(FutureWaiter<S> waiter) {
+        waiters.add(waiter);
+        final S acquired = waiter.acquire.get();
+        if (acquired == null) return;
+        if (waiter.cancel()) {
+            waiters.remove(waiter);
+        }
+        // if the waiter has been completed, either the future is done and the state is released,
+        // or the signal has started another attempt, which will find the future done
+        waiter.accept(acquired);
+    }
+
+    /**
+     * A waiting thread or future.
+     *
+     * @param <S> the type of the states.
+     */
+    private abstract static class Waiter<S> {
+        static final Object CANCELLED = new Object();
+        static final Object RETRY = new Object();
+        private final AtomicReference<Object> result = new AtomicReference<>();
+
+        /**
+         * Hands the given state or {@link #RETRY} to this waiter.
+         *
+         * @param state the state or {@link #RETRY}.
+         * @return {@code true} if this waiter has taken it.
+         */
+        boolean complete(Object state) {
+            if (result.compareAndSet(null, state)) {
+                onComplete(state);
+                return true;
+            }
+            return false;
+        }
+
+        abstract void onComplete(Object state);
+
+        boolean cancel() {
+            return result.compareAndSet(null, CANCELLED);
+        }
+
+        boolean isDone() {
+            return result.get() != null;
+        }
+
+        Object result() {
+            return result.get();
+        }
+    }
+
+    /**
+     * A waiting thread.
+     *
+     * @param <S> the type of the states.
+     */
+    private static final class ThreadWaiter<S> extends Waiter<S> {
+        private final Thread thread;
+
+        ThreadWaiter(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        void onComplete(Object state) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * A waiting future.
+     *
+     * @param <S> the type of the states.
+     */
+    private static final class FutureWaiter<S> extends Waiter<S> {
+        private final WaitQueue<S> queue;
+        private final CompletableFuture<S> future;
+        final Supplier<S> acquire;
+        private final Consumer<S> release;
+        private final Consumer<S> prepare;
+
+        FutureWaiter(WaitQueue<S> queue,
+                     CompletableFuture<S> future,
+                     Supplier<S> acquire,
+                     Consumer<S> release,
+                     Consumer<S> prepare) {
+            this.queue = queue;
+            this.future = future;
+            this.acquire = acquire;
+            this.release = release;
+            this.prepare = prepare;
+        }
+
+        @Override
+        boolean complete(Object state) {
+            // a cancelled or timed-out future does not take states
+            if (future.isDone()) {
+                cancel();
+                return false;
+            }
+            return super.complete(state);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void onComplete(Object state) {
+            if (state == RETRY) {
+                queue.enqueue(new FutureWaiter<>(queue, future, acquire, release, prepare));
+            } else {
+                accept((S) state);
+            }
+        }
+
+        /**
+         * Completes the future with the given state asynchronously, or releases it if the future is already done.
+         *
+         * @param state the state.
+         */
+        void accept(S state) {
+            if (future.isDone()) {
+                release.accept(state);
+                return;
+            }
+            future.defaultExecutor().execute(() -> {
+                try {
+                    prepare.accept(state);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                if (!future.complete(state)) {
+                    release.accept(state);
+                }
+            });
+        }
+    }
+}
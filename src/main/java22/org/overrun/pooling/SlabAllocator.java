@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling;
+
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates the slabs of a {@link BufferPool} in a shared {@link Arena}.
+ * <p>
+ * This is the Java 22 overlay of the multi-release jar. {@link #close()} frees all slabs at once, after which
+ * accessing a buffer sliced from them throws {@link IllegalStateException} instead of touching freed memory.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class SlabAllocator {
+    private final int slabSize;
+    private final Arena arena = Arena.ofShared();
+
+    /**
+     * Creates a slab allocator.
+     *
+     * @param slabSize the size of each slab in bytes.
+     */
+    SlabAllocator(int slabSize) {
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * {@return a new slab}
+     */
+    ByteBuffer allocate() {
+        return arena.allocate(slabSize).asByteBuffer();
+    }
+
+    /**
+     * Frees the slabs allocated by this allocator.
+     */
+    void close() {
+        arena.close();
+    }
+}
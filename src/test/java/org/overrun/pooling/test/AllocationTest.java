@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that borrowing and returning do not allocate in steady state.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+class AllocationTest {
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 100_000;
+
+    /**
+     * Measures the bytes allocated by the current thread with {@code com.sun.management.ThreadMXBean}.
+     */
+    static long allocatedBytes(Runnable runnable) throws ReflectiveOperationException {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Method method;
+        try {
+            method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+        } catch (ClassNotFoundException e) {
+            method = null;
+        }
+        assumeTrue(method != null && method.getDeclaringClass().isInstance(bean), "allocation counter is not supported");
+        @SuppressWarnings("deprecation") final long id = Thread.currentThread().getId();
+        // a method handle does not generate an accessor after some calls like reflection does
+        final MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+        try {
+            long before = (long) handle.invoke(bean, id);
+            for (int i = 0; i < WARMUP; i++) {
+                runnable.run();
+            }
+            before = (long) handle.invoke(bean, id);
+            for (int i = 0; i < ITERATIONS; i++) {
+                runnable.run();
+            }
+            return (long) handle.invoke(bean, id) - before;
+        } catch (Throwable e) {
+            throw new ReflectiveOperationException(e);
+        }
+    }
+
+    static void assertNoAllocation(Runnable runnable) throws ReflectiveOperationException {
+        final long bytes = allocatedBytes(runnable);
+        // allow a few bytes for the measurement itself
+        assertTrue(bytes < ITERATIONS / 10, "allocated " + bytes + " bytes in " + ITERATIONS + " iterations");
+    }
+
+    @Test
+    void testPool() throws ReflectiveOperationException {
+        final Pool<?>[] pools = {
+            new ObjectPool<>(Item::new),
+            new FixedObjectPool<>(4, Item::new),
+            new StripedObjectPool<>(Item::new),
+            new ThreadCachedPool<>(new FixedObjectPool<>(4, Item::new)),
+            new BufferPool(64)
+        };
+        for (Pool<?> pool : pools) {
+            assertNoAllocation(() -> borrowAndReturn(pool));
+        }
+    }
+
+    private static <T extends Poolable> void borrowAndReturn(Pool<T> pool) {
+        final var result = pool.borrow();
+        pool.returning(result.state());
+        final var state = pool.tryBorrow();
+        pool.returning(state);
+    }
+
+    @Test
+    void testKeyedPool() throws ReflectiveOperationException {
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item());
+        assertNoAllocation(() -> {
+            final var result = pool.borrow("key");
+            pool.returning(result.state());
+            final var state = pool.tryBorrow("key");
+            pool.returning(state);
+        });
+    }
+
+    @Test
+    void testFailedBorrow() throws ReflectiveOperationException {
+        final var pool = new FixedObjectPool<>(1, Item::new);
+        assertNotNull(pool.tryBorrow());
+        assertSame(pool.borrow(), pool.borrow());
+        assertNoAllocation(() -> {
+            assertTrue(pool.borrow().failed());
+            assertNull(pool.tryBorrow());
+        });
+    }
+
+    @Test
+    void testSizeClassPool() throws ReflectiveOperationException {
+        final var bytes = SizeClassPool.ofBytes();
+        final var buffers = SizeClassPool.ofDirectBuffers();
+        assertNoAllocation(() -> {
+            bytes.returning(bytes.borrow(100));
+            buffers.returning(buffers.borrow(1000));
+        });
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class AsyncBorrowTest {
+    static final class Item implements Poolable {
+        final AtomicBoolean inUse = new AtomicBoolean();
+        int resets;
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+    }
+
+    @Test
+    void testHandOff() throws Exception {
+        final var pool = new FixedObjectPool<>(1, Item::new);
+        final var state = pool.tryBorrow();
+        final var future = pool.borrowAsync();
+        assertFalse(future.isDone());
+        pool.returning(state);
+        assertSame(state, future.get(10, TimeUnit.SECONDS));
+        assertEquals(1, state.get().resets);
+        assertNull(pool.tryBorrow());
+    }
+
+    @Test
+    void testCancel() throws Exception {
+        final var pool = new FixedObjectPool<>(1, Item::new);
+        final var state = pool.tryBorrow();
+        final var cancelled = pool.borrowAsync();
+        final var waiting = pool.borrowAsync();
+        assertTrue(cancelled.cancel(false));
+        pool.returning(state);
+        assertSame(state, waiting.get(10, TimeUnit.SECONDS));
+        pool.returning(state);
+        assertSame(state, pool.tryBorrow());
+    }
+
+    @Test
+    void testWithPooled() throws Exception {
+        final var pool = new FixedObjectPool<>(2, Item::new);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final int n = i;
+                futures.add(pool.withPooled(item -> {
+                    assertTrue(item.inUse.compareAndSet(false, true), "object lent twice");
+                    item.inUse.set(false);
+                    return n;
+                }, executor));
+            }
+            int sum = 0;
+            for (var future : futures) {
+                sum += future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(999 * 1000 / 2, sum);
+        } finally {
+            executor.shutdown();
+        }
+        assertNotNull(pool.tryBorrow());
+        assertNotNull(pool.tryBorrow());
+    }
+
+    @Test
+    void testWithPooledFailure() {
+        final var pool = new FixedObjectPool<>(1, Item::new);
+        final var future = pool.withPooled(item -> {
+            throw new IllegalStateException("failed");
+        });
+        final var e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertNotNull(pool.tryBorrow());
+    }
+
+    @Test
+    void testKeyedBlock() throws Exception {
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), null, 4, 4, 1, PoolConfig.DEFAULT
+            .withCapacity(new CapacityConfig(4, 1, CapacityConfig.OverflowPolicy.BLOCK, Duration.ofMillis(50))));
+        final var state = pool.tryBorrow("a");
+        final var future = pool.borrowAsync("a");
+        assertFalse(future.isDone());
+        pool.returning(state);
+        assertSame(state, future.get(10, TimeUnit.SECONDS));
+        final var timedOut = pool.borrowAsync("a");
+        final var e = assertThrows(ExecutionException.class, () -> timedOut.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        pool.returning(state);
+        assertSame(state, pool.tryBorrow("a"));
+    }
+
+    @Test
+    void testKeyedFail() {
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), null, 4, 4, 1,
+            PoolConfig.DEFAULT.withCapacity(new CapacityConfig(1, 1)));
+        assertTrue(pool.borrowAsync("a").isDone());
+        assertTrue(pool.borrowAsync("a").isCompletedExceptionally());
+    }
+
+    @Test
+    void testSignal() throws Exception {
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), null, 4, 4, 1, PoolConfig.DEFAULT
+            .withCapacity(new CapacityConfig(1, 1, CapacityConfig.OverflowPolicy.BLOCK, Duration.ofSeconds(10))));
+        pool.returning(pool.tryBorrow("a"));
+        // the idle object of another key is evicted at once
+        final var b = pool.borrowAsync("b");
+        assertTrue(b.isDone());
+        final var future = pool.borrowAsync("c");
+        assertFalse(future.isDone());
+        // the return to another key frees the capacity and wakes up the future
+        pool.returning(b.get());
+        assertNotNull(future.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testConcurrent() throws InterruptedException {
+        final var pool = new FixedObjectPool<>(2, Item::new);
+        final AtomicInteger completed = new AtomicInteger();
+        ConcurrentBorrowTest.runThreads(() -> {
+            final List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                futures.add(pool.borrowAsync().thenAccept(state -> {
+                    assertTrue(state.get().inUse.compareAndSet(false, true), "object lent twice");
+                    state.get().inUse.set(false);
+                    completed.incrementAndGet();
+                    pool.returning(state);
+                }));
+            }
+            for (var future : futures) {
+                future.join();
+            }
+        });
+        assertEquals(8 * 2000, completed.get());
+        assertNotNull(pool.tryBorrow());
+        assertNotNull(pool.tryBorrow());
+    }
+}
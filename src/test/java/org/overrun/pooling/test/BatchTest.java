@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class BatchTest {
+    static final class Item implements Poolable {
+        final AtomicBoolean held = new AtomicBoolean();
+        int resets;
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+    }
+
+    @Test
+    void testObjectPool() {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new ObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Item();
+        }, 4);
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(10, pool.borrow(10, states));
+        assertEquals(10, states.size());
+        assertEquals(10, new HashSet<>(states).size());
+        assertEquals(10, created.get());
+        pool.returnAll(states);
+        // returning twice is ignored
+        pool.returnAll(states);
+
+        final List<PoolObjectState<Item>> again = new ArrayList<>();
+        assertEquals(12, pool.borrow(12, again, false));
+        assertEquals(12, new HashSet<>(again).size());
+        assertTrue(again.containsAll(states));
+        assertEquals(12, created.get());
+        for (var state : states) {
+            assertEquals(1, state.get().resets);
+        }
+        pool.returnAll(again);
+        assertEquals(0, pool.borrow(0, again));
+    }
+
+    @Test
+    void testFixedObjectPool() {
+        final var pool = new FixedObjectPool<>(4, Item::new);
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(0, pool.borrow(6, states, true));
+        assertTrue(states.isEmpty());
+        assertEquals(4, pool.borrow(6, states, false));
+        assertEquals(4, new HashSet<>(states).size());
+        assertNull(pool.tryBorrow());
+        assertEquals(0, pool.borrow(1, states, false));
+
+        pool.returnAll(states.subList(0, 3));
+        final List<PoolObjectState<Item>> three = new ArrayList<>();
+        assertEquals(0, pool.borrow(4, three));
+        assertEquals(3, pool.borrow(3, three));
+        assertEquals(new HashSet<>(states.subList(0, 3)), new HashSet<>(three));
+        assertThrows(IllegalArgumentException.class, () -> pool.borrow(-1, three));
+    }
+
+    @Test
+    void testConstructorFailure() {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new FixedObjectPool<>(8, () -> {
+            if (created.incrementAndGet() == 3) {
+                throw new IllegalStateException();
+            }
+            return new Item();
+        });
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> pool.borrow(4, states, false));
+        assertTrue(states.isEmpty());
+        // all slots are free again, and the objects constructed before the failure are reused
+        assertEquals(8, pool.borrow(8, states));
+        assertEquals(9, created.get());
+    }
+
+    @Test
+    void testKeyedCapacity() {
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), null, 4, 4, 1,
+            PoolConfig.DEFAULT.withCapacity(new CapacityConfig(4, 3)));
+        final List<KeyedPoolObjectState<String, Item>> states = new ArrayList<>();
+        assertEquals(0, pool.borrow("a", 4, states));
+        assertEquals(3, pool.borrow("a", 4, states, false));
+        assertEquals(0, pool.borrow("b", 2, states));
+        pool.returnAll(states);
+        states.clear();
+        assertEquals(1, pool.borrow("b", 1, states));
+        assertEquals(2, pool.borrow("a", 2, states));
+        // mixed keys
+        pool.returnAll(states);
+        assertEquals(3, pool.borrow("a", 3, new ArrayList<>()));
+    }
+
+    @Test
+    void testKeyedEvictIdle() {
+        final List<Item> cleaned = new ArrayList<>();
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), cleaned::add, 4, 4, 1,
+            PoolConfig.DEFAULT.withCapacity(new CapacityConfig(4, 4, CapacityConfig.OverflowPolicy.EVICT_IDLE, Duration.ZERO)));
+        final List<KeyedPoolObjectState<String, Item>> a = new ArrayList<>();
+        assertEquals(4, pool.borrow("a", 4, a));
+        pool.returnAll(a);
+        final List<KeyedPoolObjectState<String, Item>> b = new ArrayList<>();
+        assertEquals(3, pool.borrow("b", 3, b));
+        assertEquals(3, cleaned.size());
+        assertEquals(1, pool.borrow("b", 2, b, false));
+        assertEquals(4, cleaned.size());
+    }
+
+    @Test
+    void testWaiter() throws Exception {
+        final var pool = new FixedObjectPool<>(2, Item::new);
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(2, pool.borrow(2, states));
+        final var waiting = pool.borrowAsync();
+        pool.returnAll(states);
+        assertTrue(states.contains(waiting.get(10, TimeUnit.SECONDS)));
+        assertNotNull(pool.tryBorrow());
+        assertNull(pool.tryBorrow());
+    }
+
+    static void testConcurrent(Pool<Item> pool, boolean allOrNothing) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    final List<PoolObjectState<Item>> states = new ArrayList<>();
+                    for (int i = 0; i < 2000; i++) {
+                        pool.borrow(1 + i % 7, states, allOrNothing);
+                        for (var state : states) {
+                            assertTrue(state.get().held.compareAndSet(false, true));
+                        }
+                        for (var state : states) {
+                            state.get().held.set(false);
+                        }
+                        pool.returnAll(states);
+                        states.clear();
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrent() throws Exception {
+        testConcurrent(new StripedObjectPool<>(Item::new, 4), true);
+        testConcurrent(new FixedObjectPool<>(24, Item::new), true);
+        testConcurrent(new FixedObjectPool<>(24, Item::new), false);
+        final var pool = new FixedObjectPool<>(24, Item::new);
+        testConcurrent(pool, false);
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(24, pool.borrow(24, states));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.BufferPool;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class BufferPoolTest {
+    @Test
+    void testSlices() {
+        final var pool = new BufferPool(16, 64);
+        final var states = new ArrayList<>(List.of(pool.tryBorrow(), pool.tryBorrow(), pool.tryBorrow(), pool.tryBorrow()));
+        assertEquals(1, pool.slabCount());
+        for (int i = 0; i < states.size(); i++) {
+            final var buffer = states.get(i).get().buffer();
+            assertTrue(buffer.isDirect());
+            assertEquals(16, buffer.capacity());
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) i);
+            }
+        }
+        for (int i = 0; i < states.size(); i++) {
+            final var buffer = states.get(i).get().buffer();
+            for (int j = 0; j < buffer.capacity(); j++) {
+                assertEquals(i, buffer.get(j));
+            }
+        }
+        states.add(pool.tryBorrow());
+        assertEquals(2, pool.slabCount());
+    }
+
+    @Test
+    void testReuse() {
+        final var pool = new BufferPool(32);
+        final var state = pool.tryBorrow();
+        state.get().buffer().order(ByteOrder.LITTLE_ENDIAN).putInt(1);
+        pool.returning(state);
+        for (int i = 0; i < 1000; i++) {
+            final var borrowed = pool.tryBorrow();
+            final var buffer = borrowed.get().buffer();
+            assertEquals(0, buffer.position());
+            assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+            pool.returning(borrowed);
+        }
+        assertEquals(1, pool.slabCount());
+    }
+
+    @Test
+    void testCleanup() {
+        final var pool = new BufferPool(8, 8);
+        final var state = pool.tryBorrow();
+        pool.cleanup();
+        assertThrows(IllegalStateException.class, () -> state.get().buffer());
+        assertThrows(IllegalStateException.class, pool::tryBorrow);
+        assertDoesNotThrow(pool::cleanup);
+    }
+
+    @Test
+    void testConcurrent() throws InterruptedException {
+        final var pool = new BufferPool(8, 64);
+        ConcurrentBorrowTest.runThreads(() -> {
+            for (int i = 0; i < 10000; i++) {
+                final var state = pool.tryBorrow();
+                final var buffer = state.get().buffer();
+                final long id = Thread.currentThread().getId();
+                buffer.putLong(0, id);
+                Thread.onSpinWait();
+                assertEquals(id, buffer.getLong(0));
+                pool.returning(state);
+            }
+        });
+    }
+}
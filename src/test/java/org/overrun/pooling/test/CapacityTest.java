@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.CapacityConfig;
+import org.overrun.pooling.KeyedObjectPool;
+import org.overrun.pooling.KeyedPoolObjectState;
+import org.overrun.pooling.PoolConfig;
+import org.overrun.pooling.Poolable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class CapacityTest {
+    static final class Item implements Poolable {
+        final String key;
+
+        Item(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    static KeyedObjectPool<String, Item> create(List<Item> cleaned, CapacityConfig capacity) {
+        return new KeyedObjectPool<>(Item::new, cleaned::add, 4, 4, 1, PoolConfig.DEFAULT.withCapacity(capacity));
+    }
+
+    @Test
+    void testFail() {
+        final var pool = create(new ArrayList<>(), new CapacityConfig(3, 2));
+        assertTrue(pool.borrow("a").successful());
+        assertTrue(pool.borrow("a").successful());
+        assertTrue(pool.borrow("a").failed());
+        assertNull(pool.tryBorrow("a"));
+        assertTrue(pool.borrow("b").successful());
+        assertTrue(pool.borrow("b").failed());
+        assertTrue(pool.borrow("c").failed());
+    }
+
+    @Test
+    void testEvictIdle() {
+        final List<Item> cleaned = new ArrayList<>();
+        final var pool = create(cleaned, new CapacityConfig(2, 2, CapacityConfig.OverflowPolicy.EVICT_IDLE, Duration.ZERO));
+        final var a0 = pool.tryBorrow("a");
+        final var a1 = pool.tryBorrow("a");
+        final Item oldest = a1.get();
+        pool.returning(a1);
+        pool.returning(a0);
+        final var b = pool.tryBorrow("b");
+        assertNotNull(b);
+        assertEquals(List.of(oldest), cleaned);
+        assertEquals("b", b.get().key);
+        // the key itself is full
+        assertNotNull(pool.tryBorrow("b"));
+        assertNull(pool.tryBorrow("b"));
+        // the evicted slot is filled again
+        pool.returning(b);
+        assertNotNull(pool.tryBorrow("a"));
+    }
+
+    @Test
+    void testEvictCold() {
+        final List<Item> cleaned = new ArrayList<>();
+        final var pool = create(cleaned, new CapacityConfig(4, 4, CapacityConfig.OverflowPolicy.EVICT_COLD, Duration.ZERO));
+        for (String key : List.of("hot", "cold")) {
+            final var s0 = pool.tryBorrow(key);
+            final var s1 = pool.tryBorrow(key);
+            pool.returning(s0);
+            pool.returning(s1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            pool.returning(pool.tryBorrow("hot"));
+        }
+        final var c0 = pool.tryBorrow("new");
+        final var c1 = pool.tryBorrow("new");
+        assertNotNull(c0);
+        assertNotNull(c1);
+        assertEquals(2, cleaned.size());
+        for (Item item : cleaned) {
+            assertEquals("cold", item.key);
+        }
+        // no idle object is left in the other keys
+        assertNotNull(pool.tryBorrow("hot"));
+        assertNotNull(pool.tryBorrow("hot"));
+        assertNull(pool.tryBorrow("new"));
+    }
+
+    @Test
+    void testWeigher() {
+        final List<Item> cleaned = new ArrayList<>();
+        final var capacity = new CapacityConfig(4, 4, CapacityConfig.OverflowPolicy.EVICT_COLD, Duration.ZERO)
+            .withWeigher(key -> ((String) key).length());
+        final var pool = create(cleaned, capacity);
+        final List<KeyedPoolObjectState<String, Item>> states = new ArrayList<>();
+        assertEquals(2, pool.borrow("aa", 2, states));
+        pool.returnAll(states);
+        // a weight of 3 needs both objects of weight 2
+        assertNotNull(pool.tryBorrow("bbb"));
+        assertEquals(2, cleaned.size());
+        assertNotNull(pool.tryBorrow("c"));
+        assertNull(pool.tryBorrow("c"));
+        assertThrows(IllegalArgumentException.class, () -> pool.tryBorrow("eeeee"));
+
+        final var counted = create(new ArrayList<>(), new CapacityConfig(4, 4).withWeigher(key -> 3));
+        assertNotNull(counted.tryBorrow("a"));
+        assertNull(counted.tryBorrow("b"));
+    }
+
+    @Test
+    void testBlockTimeout() {
+        final var pool = create(new ArrayList<>(), new CapacityConfig(4, 1, CapacityConfig.OverflowPolicy.BLOCK, Duration.ofMillis(20)));
+        assertNotNull(pool.tryBorrow("a"));
+        final long start = System.nanoTime();
+        assertTrue(pool.borrow("a").failed());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(20).toNanos());
+    }
+
+    @Test
+    void testBlock() throws InterruptedException {
+        final var pool = create(new ArrayList<>(), new CapacityConfig(4, 1, CapacityConfig.OverflowPolicy.BLOCK, Duration.ofSeconds(10)));
+        final var a = pool.tryBorrow("a");
+        final Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            pool.returning(a);
+        });
+        thread.start();
+        assertSame(a, pool.tryBorrow("a"));
+        thread.join();
+    }
+
+    @Test
+    void testBlockOtherKey() throws InterruptedException {
+        final List<Item> cleaned = new ArrayList<>();
+        final var pool = create(cleaned, new CapacityConfig(1, 1, CapacityConfig.OverflowPolicy.BLOCK, Duration.ofSeconds(10)));
+        final var a = pool.tryBorrow("a");
+        final Item itemA = a.get();
+        pool.returning(a);
+        // the idle object of another key is evicted instead of waiting
+        final long start = System.nanoTime();
+        final var b = pool.tryBorrow("b");
+        assertNotNull(b);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        assertEquals(List.of(itemA), cleaned);
+
+        // a return to another key wakes the waiter
+        final Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            pool.returning(b);
+        });
+        thread.start();
+        final var c = pool.tryBorrow("c");
+        thread.join();
+        assertNotNull(c);
+        assertEquals("c", c.get().key);
+        assertEquals(2, cleaned.size());
+    }
+}
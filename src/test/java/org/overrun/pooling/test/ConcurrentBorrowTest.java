@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.FixedObjectPool;
+import org.overrun.pooling.KeyedObjectPool;
+import org.overrun.pooling.Poolable;
+import org.overrun.pooling.StripedObjectPool;
+import org.overrun.pooling.ThreadCachedPool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class ConcurrentBorrowTest {
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 20000;
+
+    static final class Counter implements Poolable {
+        final AtomicBoolean inUse = new AtomicBoolean();
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    static void runThreads(Runnable runnable) throws InterruptedException {
+        final List<Thread> threads = new ArrayList<>(THREADS);
+        final AtomicReference<Throwable> firstError = new AtomicReference<>();
+        for (int i = 0; i < THREADS; i++) {
+            final Thread thread = new Thread(runnable);
+            thread.setUncaughtExceptionHandler((t, e) -> firstError.compareAndSet(null, e));
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (firstError.get() != null) fail(firstError.get());
+    }
+
+    @Test
+    void testFixedObjectPool() throws InterruptedException {
+        final int size = 4;
+        final AtomicInteger constructed = new AtomicInteger();
+        final var pool = new FixedObjectPool<>(size, () -> {
+            constructed.incrementAndGet();
+            return new Counter();
+        });
+        runThreads(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final var result = pool.borrow();
+                if (result.failed()) continue;
+                final Counter counter = result.state().get();
+                assertTrue(counter.inUse.compareAndSet(false, true), "object lent twice");
+                counter.inUse.set(false);
+                pool.returning(result.state());
+            }
+        });
+        assertTrue(constructed.get() <= size);
+        assertTrue(pool.hasRemaining());
+    }
+
+    @Test
+    void testFixedObjectPoolExhausted() {
+        final var pool = new FixedObjectPool<>(2, Counter::new);
+        final var r0 = pool.borrow();
+        final var r1 = pool.borrow();
+        assertTrue(r0.successful());
+        assertTrue(r1.successful());
+        assertFalse(pool.hasRemaining());
+        assertTrue(pool.borrow().failed());
+        pool.returning(r0.state());
+        pool.returning(r0.state());
+        assertTrue(pool.hasRemaining());
+        assertSame(r0.state(), pool.borrow().state());
+        assertFalse(pool.hasRemaining());
+    }
+
+    @Test
+    void testThreadCachedPool() throws InterruptedException {
+        final int size = 4;
+        final var pool = new ThreadCachedPool<>(new FixedObjectPool<>(size, Counter::new), 2,
+            ThreadCachedPool.StealPolicy.WHEN_EXHAUSTED);
+        runThreads(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final var result = pool.borrow();
+                if (result.failed()) continue;
+                final Counter counter = result.state().get();
+                assertTrue(counter.inUse.compareAndSet(false, true), "object lent twice");
+                counter.inUse.set(false);
+                pool.returning(result.state());
+            }
+            pool.flush();
+        });
+        assertTrue(pool.hasRemaining());
+        final var first = pool.borrow();
+        assertTrue(first.successful());
+        pool.returning(first.state());
+        assertSame(first.state(), pool.borrow().state());
+    }
+
+    @Test
+    void testThreadCachedPoolStriped() throws InterruptedException {
+        final var pool = new ThreadCachedPool<>(new FixedObjectPool<>(4, Counter::new), 2,
+            ThreadCachedPool.StealPolicy.WHEN_EXHAUSTED, ThreadCachedPool.CacheScope.STRIPE);
+        runThreads(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final var state = pool.tryBorrow();
+                if (state == null) continue;
+                final Counter counter = state.get();
+                assertTrue(counter.inUse.compareAndSet(false, true), "object lent twice");
+                counter.inUse.set(false);
+                pool.returning(state);
+            }
+        });
+        final List<Counter> counters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final var state = pool.tryBorrow();
+            assertNotNull(state);
+            assertFalse(counters.contains(state.get()));
+            counters.add(state.get());
+        }
+        assertNull(pool.tryBorrow());
+    }
+
+    @Test
+    void testStripedObjectPool() throws InterruptedException {
+        final AtomicInteger constructed = new AtomicInteger();
+        final var pool = new StripedObjectPool<>(() -> {
+            constructed.incrementAndGet();
+            return new Counter();
+        }, null, 4, 2);
+        runThreads(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final var result = pool.borrow();
+                assertTrue(result.successful());
+                final Counter counter = result.state().get();
+                assertTrue(counter.inUse.compareAndSet(false, true), "object lent twice");
+                counter.inUse.set(false);
+                pool.returning(result.state());
+            }
+        });
+        assertTrue(constructed.get() > 0);
+        assertTrue(pool.hasRemaining());
+    }
+
+    @Test
+    void testFixedObjectPoolBlocking() throws InterruptedException {
+        final var pool = new FixedObjectPool<>(2, Counter::new);
+        runThreads(() -> {
+            for (int i = 0; i < ITERATIONS / 10; i++) {
+                try {
+                    final var result = pool.borrowBlocking();
+                    assertTrue(result.successful());
+                    final Counter counter = result.state().get();
+                    assertTrue(counter.inUse.compareAndSet(false, true), "object lent twice");
+                    counter.inUse.set(false);
+                    pool.returning(result.state());
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        assertTrue(pool.hasRemaining());
+    }
+
+    @Test
+    void testFixedObjectPoolTimeout() throws InterruptedException {
+        final var pool = new FixedObjectPool<>(1, Counter::new);
+        final var result = pool.borrow();
+        assertTrue(result.successful());
+        final var timedOut = pool.borrow(Duration.ofMillis(10));
+        assertTrue(timedOut.failed());
+        assertTrue(timedOut.throwable() instanceof TimeoutException);
+        final Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            pool.returning(result.state());
+        });
+        thread.start();
+        assertSame(result.state(), pool.borrow(Duration.ofSeconds(10)).state());
+        thread.join();
+    }
+
+    @Test
+    void testKeyedObjectPool() throws InterruptedException {
+        final var pool = new KeyedObjectPool<Integer, Counter>(key -> new Counter());
+        runThreads(() -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final Integer key = ThreadLocalRandom.current().nextInt(16);
+                final var result = pool.borrow(key);
+                assertTrue(result.successful());
+                final Counter counter = result.state().get();
+                assertTrue(counter.inUse.compareAndSet(false, true), "object lent twice");
+                counter.inUse.set(false);
+                pool.returning(result.state());
+            }
+        });
+        assertFalse(pool.hasRemaining(16));
+        assertNotNull(pool.tryBorrow(16));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class EvictionTest {
+    static final class Resource implements Poolable {
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        @Override
+        public void reset() {
+            assertFalse(closed.get(), "closed object lent");
+        }
+    }
+
+    static void close(Resource resource) {
+        assertTrue(resource.closed.compareAndSet(false, true), "object closed twice");
+    }
+
+    @Test
+    void testIdleTimeout() {
+        final List<Resource> closed = new ArrayList<>();
+        final var pool = new ObjectPool<>(Resource::new, resource -> {
+            close(resource);
+            closed.add(resource);
+        }, 4, PoolConfig.DEFAULT.withEviction(new EvictionConfig(1, Duration.ZERO)));
+        final var states = List.of(pool.tryBorrow(), pool.tryBorrow(), pool.tryBorrow());
+        assertEquals(0, pool.evict());
+        states.forEach(pool::returning);
+        assertEquals(2, pool.evict());
+        assertEquals(2, closed.size());
+        assertEquals(0, pool.evict());
+        for (int i = 0; i < 3; i++) {
+            assertFalse(pool.tryBorrow().get().closed.get());
+        }
+    }
+
+    @Test
+    void testMaxIdle() {
+        final var pool = new KeyedObjectPool<String, Resource>(key -> new Resource(), EvictionTest::close,
+            1, 4, 1, PoolConfig.DEFAULT.withEviction(new EvictionConfig(0, 1, Duration.ofHours(1))));
+        final var a = List.of(pool.tryBorrow("a"), pool.tryBorrow("a"), pool.tryBorrow("a"));
+        final var b = pool.tryBorrow("b");
+        a.forEach(pool::returning);
+        pool.returning(b);
+        assertEquals(2, pool.evict());
+        assertTrue(pool.hasRemaining("a"));
+        assertTrue(pool.hasRemaining("b"));
+    }
+
+    static KeyedObjectPool<String, Resource> staleReturnPool(boolean validateOnReturn) {
+        final var pool = new KeyedObjectPool<String, Resource>(key -> new Resource(), EvictionTest::close,
+            2, 2, 1, PoolConfig.DEFAULT
+            .withEviction(new EvictionConfig(0, 0, Duration.ZERO))
+            .withCapacity(new CapacityConfig(2, 2))
+            .withValidation(new ValidationConfig(false, validateOnReturn, 0)));
+        final var a = pool.tryBorrow("a");
+        pool.returning(a);
+        assertEquals(1, pool.evict());
+        final var b = List.of(pool.tryBorrow("b"), pool.tryBorrow("b"));
+        // the slot of the evicted object becomes vacant, but no object can be created
+        assertNull(pool.tryBorrow("a"));
+        // a stale return of the vacant slot must be ignored
+        pool.returning(a);
+        b.forEach(pool::returning);
+        assertEquals(2, pool.evict());
+        return pool;
+    }
+
+    @Test
+    void testStaleReturnAfterEviction() {
+        final var pool = staleReturnPool(false);
+        final var a1 = pool.tryBorrow("a");
+        final var a2 = pool.tryBorrow("a");
+        assertNotNull(a1);
+        assertNotNull(a2);
+        assertNotSame(a1, a2);
+        assertNull(pool.tryBorrow("a"));
+    }
+
+    @Test
+    void testStaleReturnAfterEvictionValidated() {
+        final var pool = staleReturnPool(true);
+        assertNotSame(pool.tryBorrow("a"), pool.tryBorrow("a"));
+    }
+
+    @Test
+    void testConcurrentEviction() throws InterruptedException {
+        final AtomicInteger evicted = new AtomicInteger();
+        final var pool = new ObjectPool<>(Resource::new, resource -> {
+            close(resource);
+            evicted.incrementAndGet();
+        }, 4, PoolConfig.DEFAULT.withEviction(new EvictionConfig(0, Duration.ZERO)));
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Thread evictor = new Thread(() -> {
+            while (running.get()) {
+                pool.evict();
+            }
+        });
+        evictor.start();
+        ConcurrentBorrowTest.runThreads(() -> {
+            for (int i = 0; i < 20000; i++) {
+                final var state = pool.tryBorrow();
+                assertFalse(state.get().closed.get(), "closed object lent");
+                pool.returning(state);
+            }
+        });
+        running.set(false);
+        evictor.join();
+        assertTrue(evicted.get() > 0);
+    }
+}
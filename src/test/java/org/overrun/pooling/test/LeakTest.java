@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class LeakTest {
+    @Test
+    void testReport() {
+        final List<LeakConfig.Leak> leaks = new ArrayList<>();
+        final var pool = new ObjectPool<>(Item::new, null, 4,
+            PoolConfig.DEFAULT.withLeakDetection(new LeakConfig(1.0, Duration.ZERO, false, leaks::add)));
+        final var leaked = pool.tryBorrow();
+        final var returned = pool.tryBorrow();
+        pool.returning(returned);
+        assertEquals(0, pool.detectLeaks());
+        assertEquals(1, leaks.size());
+        final var leak = leaks.get(0);
+        assertSame(leaked.get(), leak.object());
+        assertFalse(leak.reclaimed());
+        assertNotNull(leak.borrowSite());
+        // the borrow site points at this test
+        assertTrue(List.of(leak.borrowSite().getStackTrace()).stream()
+            .anyMatch(e -> e.getMethodName().equals("testReport")));
+        // each lease is reported once
+        pool.detectLeaks();
+        assertEquals(1, leaks.size());
+    }
+
+    @Test
+    void testReclaimFixedObjectPool() {
+        final List<LeakConfig.Leak> leaks = new ArrayList<>();
+        final var pool = new FixedObjectPool<>(2, Item::new, null,
+            PoolConfig.DEFAULT.withLeakDetection(new LeakConfig(0.0, Duration.ZERO, true, leaks::add)));
+        final var a = pool.tryBorrow();
+        final var b = pool.tryBorrow();
+        assertNull(pool.tryBorrow());
+        assertEquals(2, pool.detectLeaks());
+        assertEquals(2, leaks.size());
+        assertTrue(leaks.get(0).reclaimed());
+        assertNull(leaks.get(0).borrowSite());
+
+        // the slots are filled with new objects, and the stale states are ignored
+        final var c = pool.tryBorrow();
+        assertNotNull(c);
+        assertNotSame(a.get(), c.get());
+        assertNotSame(b.get(), c.get());
+        pool.returning(a);
+        pool.returning(b);
+        assertNotNull(pool.tryBorrow());
+        assertNull(pool.tryBorrow());
+    }
+
+    @Test
+    void testReclaimKeyedObjectPool() {
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), null, 4, 4, 1,
+            PoolConfig.DEFAULT.withCapacity(new CapacityConfig(1, 1))
+                .withLeakDetection(new LeakConfig(0.0, Duration.ZERO, true, leak -> {
+                })));
+        final var a = pool.tryBorrow("a");
+        assertNull(pool.tryBorrow("b"));
+        assertEquals(1, pool.detectLeaks());
+        final var b = pool.tryBorrow("b");
+        assertNotNull(b);
+        // returning the reclaimed state does not exceed the capacity
+        pool.returning(a);
+        assertNull(pool.tryBorrow("a"));
+        pool.returning(b);
+        assertNotNull(pool.tryBorrow("b"));
+    }
+
+    @Test
+    void testThreadCachedPool() throws InterruptedException {
+        final List<LeakConfig.Leak> leaks = new ArrayList<>();
+        final var underlying = new ObjectPool<>(Item::new, null, 4,
+            PoolConfig.DEFAULT.withLeakDetection(new LeakConfig(0.0, Duration.ofMillis(50), true, leaks::add)));
+        final var pool = new ThreadCachedPool<>(underlying);
+        final var state = pool.tryBorrow();
+        pool.returning(state);
+        Thread.sleep(100);
+        // the object held in the magazine is not lent, and borrowing it again starts a new lease
+        assertEquals(0, underlying.detectLeaks());
+        assertSame(state, pool.tryBorrow());
+        assertEquals(0, underlying.detectLeaks());
+        assertTrue(leaks.isEmpty());
+        Thread.sleep(100);
+        assertEquals(1, underlying.detectLeaks());
+        assertSame(state.get(), leaks.get(0).object());
+    }
+
+    @Test
+    void testNotOverdue() {
+        final List<LeakConfig.Leak> leaks = new ArrayList<>();
+        final var pool = new StripedObjectPool<>(Item::new, null, 1, 4,
+            PoolConfig.DEFAULT.withLeakDetection(new LeakConfig(0.5, Duration.ofHours(1), true, leaks::add)));
+        pool.tryBorrow();
+        assertEquals(0, pool.detectLeaks());
+        assertTrue(leaks.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(64, 4096,
+            PoolConfig.DEFAULT.withLeakDetection(new LeakConfig(0.0, Duration.ZERO, false, leaks::add))));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class LeaseTest {
+    @Test
+    void testTryWithResources() {
+        final var pool = new FixedObjectPool<>(1, Item::new);
+        final Item item;
+        try (var lease = pool.lease()) {
+            assertNotNull(lease);
+            assertTrue(lease.isOpen());
+            item = lease.get();
+            assertNull(pool.lease());
+        }
+        try (var lease = pool.lease()) {
+            assertSame(item, lease.get());
+        }
+        assertTrue(pool.hasRemaining());
+    }
+
+    @Test
+    void testStaleClose() {
+        final var pool = new FixedObjectPool<>(1, Item::new);
+        final var stale = pool.lease();
+        stale.close();
+        assertFalse(stale.isOpen());
+        final var lease = pool.lease();
+        assertNotNull(lease);
+        // the stale lease must not return the object borrowed by the new lease
+        stale.close();
+        assertTrue(lease.isOpen());
+        assertNull(pool.tryBorrow());
+        lease.close();
+        lease.close();
+        assertNotNull(pool.tryBorrow());
+        assertNull(pool.tryBorrow());
+    }
+
+    @Test
+    void testKeyedPool() {
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item());
+        final var stale = pool.lease("a");
+        final Item item = stale.get();
+        stale.close();
+        try (var lease = pool.lease("a")) {
+            assertSame(item, lease.get());
+            stale.close();
+            assertTrue(lease.isOpen());
+            assertNotSame(item, pool.tryBorrow("a").get());
+        }
+    }
+
+    @Test
+    void testWrapState() throws InterruptedException {
+        final var pool = new FixedObjectPool<>(1, Item::new);
+        try (var lease = pool.lease(pool.borrowBlocking().state())) {
+            assertTrue(lease.isOpen());
+        }
+        assertNull(pool.lease((PoolObjectState<Item>) null));
+        assertNotNull(pool.tryBorrow());
+    }
+}
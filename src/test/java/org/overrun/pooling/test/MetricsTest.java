@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class MetricsTest {
+    @Test
+    void testCounters() {
+        final var metrics = new CountingMetrics();
+        final var pool = new ObjectPool<>(Item::new, null, 4, PoolConfig.DEFAULT.withMetrics(metrics));
+        final var a = pool.tryBorrow();
+        final var b = pool.tryBorrow();
+        pool.returning(a);
+        pool.returning(a);
+        final var c = pool.tryBorrow();
+        assertEquals(3, metrics.borrows());
+        assertEquals(1, metrics.returns());
+        assertEquals(2, metrics.misses());
+        assertEquals(2, metrics.creations());
+        assertEquals(2, metrics.active());
+        assertEquals(0, metrics.idle());
+        pool.returning(b);
+        pool.returning(c);
+        assertEquals(0, metrics.active());
+        assertEquals(2, metrics.idle());
+        assertNull(metrics.createLatency());
+    }
+
+    @Test
+    void testThreadCachedPool() {
+        final var metrics = new CountingMetrics();
+        final var pool = new ThreadCachedPool<>(new ObjectPool<>(Item::new, null, 4,
+            PoolConfig.DEFAULT.withMetrics(metrics)));
+        final var a = pool.tryBorrow();
+        pool.returning(a);
+        assertSame(a, pool.tryBorrow());
+        // the borrows from the magazine are counted too
+        assertEquals(2, metrics.borrows());
+        assertEquals(1, metrics.returns());
+        assertEquals(1, metrics.misses());
+        assertEquals(1, metrics.active());
+        pool.returning(a);
+        pool.flush();
+        assertEquals(0, metrics.active());
+        assertEquals(1, metrics.idle());
+    }
+
+    @Test
+    void testFixedObjectPool() throws InterruptedException {
+        final var metrics = new CountingMetrics(true);
+        final var pool = new FixedObjectPool<>(1, Item::new, null, PoolConfig.DEFAULT.withMetrics(metrics));
+        final var a = pool.tryBorrow();
+        assertNull(pool.tryBorrow());
+        assertTrue(pool.borrow(Duration.ofMillis(10)).failed());
+        pool.returning(a);
+        assertTrue(pool.borrowBlocking().successful());
+        assertEquals(2, metrics.borrows());
+        assertEquals(2, metrics.failures());
+        assertEquals(1, metrics.creations());
+        assertEquals(1, metrics.createLatency().count());
+        assertEquals(1, metrics.waitLatency().count());
+        assertTrue(metrics.waitLatency().percentile(50) >= Duration.ofMillis(10).toNanos());
+    }
+
+    @Test
+    void testKeyedObjectPool() {
+        final var metrics = new CountingMetrics();
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), null, 4, 4, 1, PoolConfig.DEFAULT
+            .withEviction(new EvictionConfig(0, Duration.ZERO))
+            .withCapacity(new CapacityConfig(2, 2))
+            .withMetrics(metrics));
+        final var states = List.of(pool.tryBorrow("a"), pool.tryBorrow("b"));
+        assertNull(pool.tryBorrow("c"));
+        states.forEach(pool::returning);
+        assertEquals(2, pool.evict());
+        assertEquals(2, metrics.borrows());
+        assertEquals(1, metrics.failures());
+        assertEquals(2, metrics.destructions());
+        assertEquals(0, metrics.idle());
+    }
+
+    @Test
+    void testConcurrentCounters() throws InterruptedException {
+        final var metrics = new CountingMetrics();
+        final var pool = new StripedObjectPool<>(Item::new, null, 4, 4, PoolConfig.DEFAULT.withMetrics(metrics));
+        ConcurrentBorrowTest.runThreads(() -> {
+            for (int i = 0; i < 10000; i++) {
+                pool.returning(pool.tryBorrow());
+            }
+        });
+        assertEquals(80000, metrics.borrows());
+        assertEquals(80000, metrics.returns());
+        assertEquals(metrics.misses(), metrics.creations());
+        assertEquals(metrics.creations(), metrics.idle());
+    }
+
+    @Test
+    void testUnsupported() {
+        final var config = PoolConfig.DEFAULT.withEviction(new EvictionConfig(0, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new FixedObjectPool<>(1, Item::new, null, config));
+        assertThrows(IllegalArgumentException.class,
+            () -> new ObjectPool<>(Item::new, null, 1, config.withCapacity(new CapacityConfig(1, 1))));
+    }
+
+    @Test
+    void testHistogram() {
+        final var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1_000_000);
+        assertEquals(100, histogram.count());
+        assertEquals(127, histogram.percentile(50));
+        assertEquals(127, histogram.percentile(99));
+        assertEquals((1 << 20) - 1, histogram.percentile(100));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class PartitionTest {
+    @Test
+    void testStealing() {
+        final AtomicInteger node = new AtomicInteger();
+        final var pool = new PartitionedObjectPool<>(Item::new, null, 2, 4, node::get);
+        final var state = pool.tryBorrow();
+        pool.returning(state);
+        // the other partition has no idle object
+        node.set(1);
+        assertSame(state, pool.tryBorrow());
+        assertEquals(new PartitionedObjectPool.PartitionStats(0, 1, 0, 0), pool.stats(1));
+        assertEquals(new PartitionedObjectPool.PartitionStats(0, 0, 1, 1), pool.stats(0));
+        // returned to the partition that created it
+        pool.returning(state);
+        node.set(0);
+        assertSame(state, pool.tryBorrow());
+        assertEquals(1, pool.stats(0).hits());
+    }
+
+    @Test
+    void testLocalFirst() {
+        final AtomicInteger node = new AtomicInteger();
+        final var pool = new PartitionedObjectPool<>(Item::new, null, 2, 4, node::get);
+        final var a = pool.tryBorrow();
+        node.set(1);
+        final var b = pool.tryBorrow();
+        assertNotSame(a.get(), b.get());
+        pool.returning(a);
+        pool.returning(b);
+        assertSame(b, pool.tryBorrow());
+        node.set(2);
+        // the locality id is mapped by its remainder
+        assertSame(a, pool.tryBorrow());
+        assertEquals(0, pool.stats(0).steals());
+        assertEquals(0, pool.stats(1).steals());
+    }
+
+    @Test
+    void testReturnAll() {
+        final AtomicInteger node = new AtomicInteger();
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new PartitionedObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Item();
+        }, null, 2, 4, node::get);
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(3, pool.borrow(3, states));
+        node.set(1);
+        assertEquals(2, pool.borrow(2, states));
+        pool.returnAll(states);
+        states.clear();
+        assertEquals(2, pool.borrow(2, states));
+        node.set(0);
+        assertEquals(3, pool.borrow(3, states));
+        assertEquals(5, created.get());
+    }
+
+    @Test
+    void testPrewarm() {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new PartitionedObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Item();
+        }, null, 3, 4, () -> 0);
+        pool.prewarmAsync(7).join();
+        assertEquals(7, created.get());
+        for (int i = 0; i < 7; i++) {
+            pool.tryBorrow();
+        }
+        assertEquals(7, created.get());
+        assertEquals(3, pool.stats(0).hits());
+        assertEquals(4, pool.stats(0).steals());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class PrewarmTest {
+    @Test
+    void testFixedObjectPool() {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new FixedObjectPool<>(8, () -> {
+            created.incrementAndGet();
+            return new Item();
+        });
+        pool.prewarm(3);
+        assertEquals(3, created.get());
+        // the count includes the objects constructed before
+        pool.prewarm(3);
+        assertEquals(3, created.get());
+        pool.prewarm(100);
+        assertEquals(8, created.get());
+
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(8, pool.borrow(8, states));
+        assertEquals(8, created.get());
+        assertThrows(IllegalArgumentException.class, () -> pool.prewarm(-1));
+    }
+
+    @Test
+    void testFixedObjectPoolAsync() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new FixedObjectPool<>(64, () -> {
+            created.incrementAndGet();
+            return new Item();
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            pool.prewarmAsync(executor).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(64, created.get());
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(64, pool.borrow(64, states));
+        assertEquals(64, created.get());
+    }
+
+    @Test
+    void testObjectPool() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new ObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Item();
+        }, 4);
+        pool.prewarmAsync(32).get(10, TimeUnit.SECONDS);
+        assertEquals(32, created.get());
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(32, pool.borrow(32, states));
+        assertEquals(32, created.get());
+        pool.returnAll(states);
+    }
+
+    @Test
+    void testKeyedObjectPool() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new KeyedObjectPool<String, Item>(key -> {
+            created.incrementAndGet();
+            return new Item();
+        }, null, 4, 4, 1,
+            PoolConfig.DEFAULT.withCapacity(new CapacityConfig(16, 6)));
+        pool.prewarm("a", 4);
+        assertEquals(4, created.get());
+        // capped at the per-key quota
+        pool.prewarmAsync("b", 10).get(10, TimeUnit.SECONDS);
+        assertEquals(10, created.get());
+        final List<KeyedPoolObjectState<String, Item>> states = new ArrayList<>();
+        assertEquals(4, pool.borrow("a", 4, states));
+        assertEquals(10, created.get());
+    }
+
+    @Test
+    void testConstructorFailure() {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new FixedObjectPool<>(8, () -> {
+            if (created.incrementAndGet() == 3) {
+                throw new IllegalStateException();
+            }
+            return new Item();
+        });
+        final var future = pool.prewarmAsync(8, Runnable::run);
+        final var e = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        // the failed slot is empty again
+        pool.prewarm(8);
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(8, pool.borrow(8, states));
+    }
+
+    @Test
+    void testSizeClassPool() {
+        final AtomicInteger allocated = new AtomicInteger();
+        final var pool = new SizeClassPool<>(length -> {
+            allocated.incrementAndGet();
+            return new byte[length];
+        }, a -> a.length, null, SizeClassConfig.DEFAULT);
+        pool.prewarmAsync(100, 4).join();
+        assertEquals(4, allocated.get());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(128, pool.borrow(100).length);
+        }
+        assertEquals(4, allocated.get());
+    }
+}
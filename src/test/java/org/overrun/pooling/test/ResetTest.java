@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class ResetTest {
+    static final class Item implements Poolable {
+        int resets;
+        boolean failing;
+
+        @Override
+        public void reset() {
+            resets++;
+            if (failing) {
+                throw new IllegalStateException("reset failed");
+            }
+        }
+    }
+
+    /**
+     * An executor that runs the tasks when asked.
+     */
+    static final class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    @Test
+    void testOnReturn() {
+        final var pool = new ObjectPool<>(Item::new, null, 4, PoolConfig.DEFAULT.withReset(ResetConfig.ON_RETURN));
+        final var state = pool.tryBorrow();
+        assertEquals(0, state.get().resets);
+        pool.returning(state);
+        assertEquals(1, state.get().resets);
+        assertSame(state, pool.tryBorrow());
+        assertEquals(1, state.get().resets);
+    }
+
+    @Test
+    void testThreadCachedPool() {
+        final var pool = new ThreadCachedPool<>(new ObjectPool<>(Item::new, null, 4,
+            PoolConfig.DEFAULT.withReset(ResetConfig.ON_RETURN)));
+        final var state = pool.tryBorrow();
+        pool.returning(state);
+        // the object is reset when it is cached, not when it is borrowed from the magazine
+        assertEquals(1, state.get().resets);
+        assertSame(state, pool.tryBorrow());
+        assertEquals(1, state.get().resets);
+    }
+
+    @Test
+    void testBackground() {
+        final var executor = new ManualExecutor();
+        final var pool = new FixedObjectPool<>(1, Item::new, null, PoolConfig.DEFAULT.withReset(new ResetConfig(executor)));
+        final var state = pool.tryBorrow();
+        pool.returning(state);
+        // returning twice is ignored
+        pool.returning(state);
+        assertEquals(1, executor.tasks.size());
+        assertEquals(0, state.get().resets);
+        // invisible until the reset finishes
+        assertNull(pool.tryBorrow());
+        executor.runAll();
+        assertSame(state, pool.tryBorrow());
+        assertEquals(1, state.get().resets);
+    }
+
+    @Test
+    void testBackgroundWaiter() throws Exception {
+        final var executor = new ManualExecutor();
+        final var pool = new FixedObjectPool<>(1, Item::new, null, PoolConfig.DEFAULT.withReset(new ResetConfig(executor)));
+        final var state = pool.tryBorrow();
+        final var future = pool.borrowAsync();
+        pool.returning(state);
+        assertFalse(future.isDone());
+        executor.runAll();
+        assertSame(state, future.get(10, TimeUnit.SECONDS));
+        assertEquals(1, state.get().resets);
+    }
+
+    @Test
+    void testFailure() {
+        final AtomicInteger created = new AtomicInteger();
+        final var metrics = new CountingMetrics();
+        final var pool = new ObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Item();
+        }, null, 4, PoolConfig.DEFAULT.withReset(ResetConfig.ON_RETURN).withMetrics(metrics));
+        final var state = pool.tryBorrow();
+        final Item item = state.get();
+        item.failing = true;
+        assertThrows(IllegalStateException.class, () -> pool.returning(state));
+        assertEquals(1, metrics.destructions());
+        // the slot is filled with a new object
+        assertNotSame(item, pool.tryBorrow().get());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void testFixedFailure() {
+        final var pool = new FixedObjectPool<>(1, Item::new, null, PoolConfig.DEFAULT.withReset(ResetConfig.ON_RETURN));
+        final var state = pool.tryBorrow();
+        state.get().failing = true;
+        assertThrows(IllegalStateException.class, () -> pool.returning(state));
+        final var next = pool.tryBorrow();
+        assertNotNull(next);
+        assertNotSame(state, next);
+        assertEquals(0, next.get().resets);
+    }
+
+    @Test
+    void testReturnAll() {
+        final var executor = new ManualExecutor();
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), null, 4, 4, 1,
+            PoolConfig.DEFAULT.withReset(new ResetConfig(executor)));
+        final List<KeyedPoolObjectState<String, Item>> states = new ArrayList<>();
+        assertEquals(3, pool.borrow("a", 3, states));
+        states.get(1).get().failing = true;
+        pool.returnAll(states);
+        assertEquals(1, executor.tasks.size());
+        assertFalse(pool.hasRemaining("a"));
+        assertThrows(IllegalStateException.class, executor::runAll);
+        final List<KeyedPoolObjectState<String, Item>> again = new ArrayList<>();
+        assertEquals(2, pool.borrow("a", 2, again));
+        assertTrue(again.contains(states.get(0)));
+        assertTrue(again.contains(states.get(2)));
+        assertFalse(again.contains(states.get(1)));
+        assertEquals(1, states.get(0).get().resets);
+    }
+
+    @Test
+    void testSizeClassPool() {
+        final var pool = new SizeClassPool<>(int[]::new, a -> a.length, a -> a[0] = 0, SizeClassConfig.DEFAULT,
+            PoolConfig.DEFAULT.withReset(ResetConfig.ON_RETURN));
+        final int[] array = pool.borrow(16);
+        array[0] = 42;
+        pool.returning(array);
+        assertEquals(0, array[0]);
+        assertSame(array, pool.borrow(16));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class ReuseOrderTest {
+    static final class Item implements Poolable {
+        boolean lent;
+        boolean valid = true;
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public boolean isValid() {
+            return valid;
+        }
+    }
+
+    static final PoolConfig FIFO = PoolConfig.DEFAULT.withReuseOrder(ReuseOrder.FIFO);
+
+    @Test
+    void testLifo() {
+        final var pool = new FixedObjectPool<>(4, Item::new, null,
+            PoolConfig.DEFAULT.withReuseOrder(ReuseOrder.LIFO));
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(4, pool.borrow(4, states));
+        pool.returnAll(states);
+        final var a = pool.tryBorrow();
+        pool.returning(a);
+        // the hot object is borrowed again and again
+        for (int i = 0; i < 8; i++) {
+            final var state = pool.tryBorrow();
+            assertSame(a, state);
+            pool.returning(state);
+        }
+    }
+
+    @Test
+    void testFifo() {
+        final var pool = new FixedObjectPool<>(4, Item::new, null, FIFO);
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(4, pool.borrow(4, states));
+        for (var state : states) {
+            pool.returning(state);
+        }
+        // the objects are used in turn, in the order they were returned
+        for (int round = 0; round < 3; round++) {
+            for (var expected : states) {
+                final var state = pool.tryBorrow();
+                assertSame(expected, state);
+                pool.returning(state);
+            }
+        }
+    }
+
+    @Test
+    void testFifoBatch() {
+        final var pool = new FixedObjectPool<>(8, Item::new, null, FIFO);
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(8, pool.borrow(8, states));
+        pool.returnAll(states.subList(0, 4));
+        pool.returnAll(states.subList(4, 8));
+        final List<PoolObjectState<Item>> again = new ArrayList<>();
+        assertEquals(8, pool.borrow(8, again, true));
+        assertEquals(states, again);
+        assertFalse(pool.hasRemaining());
+        assertEquals(0, pool.borrow(1, again));
+    }
+
+    @Test
+    void testFifoValidateIdle() {
+        final List<Item> destroyed = new ArrayList<>();
+        final var pool = new FixedObjectPool<>(4, Item::new, destroyed::add,
+            FIFO.withValidation(new ValidationConfig(2)));
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(4, pool.borrow(4, states));
+        for (var state : states) {
+            pool.returning(state);
+        }
+        final Item last = states.get(3).get();
+        last.valid = false;
+        // the checked objects go to the back, so the second call reaches the last object
+        assertEquals(0, pool.validateIdle());
+        assertEquals(1, pool.validateIdle());
+        assertEquals(List.of(last), destroyed);
+        // the queue is now the first, the second and the third object
+        assertSame(states.get(0), pool.tryBorrow());
+    }
+
+    @Test
+    void testUnsupported() {
+        assertThrows(IllegalArgumentException.class, () -> new ObjectPool<>(Item::new, null, 4, FIFO));
+        // LIFO is the default of all pools
+        assertDoesNotThrow(() -> new ObjectPool<>(Item::new, null, 4,
+            PoolConfig.DEFAULT.withReuseOrder(ReuseOrder.LIFO)));
+    }
+
+    @Test
+    void testFifoConcurrent() throws InterruptedException {
+        final int threadCount = 8;
+        final var pool = new FixedObjectPool<>(4, Item::new, null, FIFO);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean shared = new AtomicBoolean();
+        final Set<Item> items = new HashSet<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 10000; j++) {
+                    final var state = pool.tryBorrow();
+                    if (state == null) continue;
+                    final Item item = state.get();
+                    if (item.lent) shared.set(true);
+                    item.lent = true;
+                    synchronized (items) {
+                        items.add(item);
+                    }
+                    item.lent = false;
+                    pool.returning(state);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(shared.get());
+        assertEquals(4, items.size());
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(4, pool.borrow(4, states, true));
+    }
+}
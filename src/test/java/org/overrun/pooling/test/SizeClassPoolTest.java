@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.CountingMetrics;
+import org.overrun.pooling.PoolConfig;
+import org.overrun.pooling.SizeClassConfig;
+import org.overrun.pooling.SizeClassPool;
+
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class SizeClassPoolTest {
+    @Test
+    void testClasses() {
+        assertArrayEquals(new int[]{16, 32, 64, 128},
+            SizeClassPool.ofInts(new SizeClassConfig(SizeClassConfig.Spacing.POWER_OF_TWO, 10, 100, 4, 0)).classSizes());
+        assertArrayEquals(new int[]{16, 20, 24, 28, 32, 40, 48, 56, 64},
+            SizeClassPool.ofInts(new SizeClassConfig(SizeClassConfig.Spacing.QUARTERS, 16, 50, 4, 0)).classSizes());
+    }
+
+    @Test
+    void testRoundUp() {
+        final var pool = SizeClassPool.ofInts();
+        final int[] a = pool.borrow(100);
+        assertEquals(128, a.length);
+        assertEquals(16, pool.borrow(0).length);
+        pool.returning(a);
+        assertSame(a, pool.borrow(65));
+        assertEquals((1 << 20) + 1, pool.borrow((1 << 20) + 1).length);
+    }
+
+    @Test
+    void testBorrowUp() {
+        final var pool = SizeClassPool.ofLongs(new SizeClassConfig(SizeClassConfig.Spacing.POWER_OF_TWO, 16, 1024, 4, 1));
+        final long[] a = pool.borrow(64);
+        final long[] b = pool.borrow(256);
+        pool.returning(a);
+        pool.returning(b);
+        assertSame(a, pool.borrow(40));
+        assertNotSame(b, pool.borrow(40));
+        assertSame(b, pool.borrow(256));
+    }
+
+    @Test
+    void testRetention() {
+        final var metrics = new CountingMetrics();
+        final var pool = new SizeClassPool<byte[]>(byte[]::new, a -> a.length, null,
+            new SizeClassConfig(SizeClassConfig.Spacing.POWER_OF_TWO, 16, 64, 1, 0),
+            PoolConfig.DEFAULT.withMetrics(metrics));
+        final byte[] a = pool.borrow(16);
+        final byte[] b = pool.borrow(16);
+        pool.returning(a);
+        pool.returning(b);
+        assertEquals(2, metrics.returns());
+        assertEquals(1, metrics.destructions());
+        assertEquals(1, metrics.idle());
+        pool.returning(new byte[17]);
+        assertSame(a, pool.borrow(16));
+        assertNotSame(b, pool.borrow(16));
+    }
+
+    @Test
+    void testDirectBuffers() {
+        final var pool = SizeClassPool.ofDirectBuffers();
+        final var buffer = pool.borrow(1000);
+        assertTrue(buffer.isDirect());
+        assertEquals(1024, buffer.capacity());
+        buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(1).limit(8);
+        pool.returning(buffer);
+        final var borrowed = pool.borrow(1000);
+        assertSame(buffer, borrowed);
+        assertEquals(0, borrowed.position());
+        assertEquals(1024, borrowed.limit());
+        assertEquals(ByteOrder.BIG_ENDIAN, borrowed.order());
+    }
+
+    @Test
+    void testConcurrent() throws InterruptedException {
+        final var pool = SizeClassPool.ofInts();
+        ConcurrentBorrowTest.runThreads(() -> {
+            final int id = (int) Thread.currentThread().getId();
+            for (int i = 0; i < 10000; i++) {
+                final int[] a = pool.borrow(1 + (i & 127));
+                a[0] = id;
+                Thread.onSpinWait();
+                assertEquals(id, a[0]);
+                pool.returning(a);
+            }
+        });
+    }
+}
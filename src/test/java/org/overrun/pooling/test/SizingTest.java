@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class SizingTest {
+    @Test
+    void testGrowAndShrink() {
+        final AtomicInteger created = new AtomicInteger();
+        final List<Item> cleaned = new ArrayList<>();
+        final List<SizingConfig.Decision> decisions = new ArrayList<>();
+        final var pool = new ObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Item();
+        }, cleaned::add, 4, PoolConfig.DEFAULT.withSizing(new SizingConfig(2, 16, 1.0, 0.5, decisions::add)));
+
+        // an idle pool is grown to the minimum size
+        var decision = pool.resize();
+        assertEquals(2, decision.target());
+        assertEquals(2, created.get());
+
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(8, pool.borrow(8, states));
+        pool.returnAll(states);
+        decision = pool.resize();
+        assertEquals(8, decision.peakLent());
+        assertEquals(8, decision.size());
+        assertEquals(12, decision.target());
+        assertEquals(0.75, decision.missRate());
+        assertEquals(12, created.get());
+
+        // the demand has gone
+        decision = pool.resize();
+        assertEquals(0, decision.peakLent());
+        assertEquals(2, decision.target());
+        assertEquals(10, cleaned.size());
+        assertEquals(3, decisions.size());
+        assertSame(decision, decisions.get(2));
+    }
+
+    @Test
+    void testSmoothing() {
+        final var pool = new ObjectPool<>(Item::new, null, 4,
+            PoolConfig.DEFAULT.withSizing(new SizingConfig(0, 6, 0.5, 0.0, null)));
+        final var state = pool.tryBorrow();
+        assertEquals(1, pool.resize().target());
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(9, pool.borrow(9, states));
+        // the lent objects count towards the next window
+        var decision = pool.resize();
+        assertEquals(10, decision.peakLent());
+        assertEquals(5.5, decision.smoothedPeak());
+        assertEquals(6, decision.target());
+        pool.returnAll(states);
+        decision = pool.resize();
+        assertEquals(10, decision.peakLent());
+        assertEquals(6, decision.target());
+        decision = pool.resize();
+        assertEquals(1, decision.peakLent());
+        assertEquals(5, decision.target());
+        pool.returning(state);
+    }
+
+    @Test
+    void testUnsupported() {
+        final var config = PoolConfig.DEFAULT.withSizing(new SizingConfig(1, 4));
+        assertThrows(IllegalArgumentException.class, () -> new FixedObjectPool<>(4, Item::new, null, config));
+        assertThrows(IllegalArgumentException.class, () -> new SizingConfig(4, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SizingConfig(0, 1, 0.0, 0.0, null));
+        assertNull(new ObjectPool<>(Item::new).resize());
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author squid233
+ * @since 0.1.0
+ */
+class ValidationTest {
+    static final class Item implements Poolable {
+        boolean valid = true;
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public boolean isValid() {
+            return valid;
+        }
+    }
+
+    static final PoolConfig ON_BORROW = PoolConfig.DEFAULT.withValidation(new ValidationConfig(true, false, 0));
+    static final PoolConfig ON_RETURN = PoolConfig.DEFAULT.withValidation(new ValidationConfig(false, true, 0));
+
+    @Test
+    void testObjectPoolOnBorrow() {
+        final List<Item> destroyed = new ArrayList<>();
+        final var pool = new ObjectPool<>(Item::new, destroyed::add, 4, ON_BORROW);
+        final var state = pool.tryBorrow();
+        final Item item = state.get();
+        pool.returning(state);
+        item.valid = false;
+        final var replaced = pool.tryBorrow();
+        // the borrower gets a new object in the same slot
+        assertSame(state, replaced);
+        assertNotSame(item, replaced.get());
+        assertTrue(replaced.get().isValid());
+        assertEquals(List.of(item), destroyed);
+    }
+
+    @Test
+    void testObjectPoolOnReturn() {
+        final List<Item> destroyed = new ArrayList<>();
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new ObjectPool<>(() -> {
+            created.incrementAndGet();
+            return new Item();
+        }, destroyed::add, 4, ON_RETURN);
+        final var state = pool.tryBorrow();
+        final Item item = state.get();
+        item.valid = false;
+        pool.returning(state);
+        assertEquals(List.of(item), destroyed);
+        final var next = pool.tryBorrow();
+        assertNotSame(item, next.get());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void testBatch() {
+        final List<Item> destroyed = new ArrayList<>();
+        final var pool = new KeyedObjectPool<String, Item>(key -> new Item(), destroyed::add, 4, 4, 1,
+            ON_BORROW.withCapacity(new CapacityConfig(4, 4)));
+        final List<KeyedPoolObjectState<String, Item>> states = new ArrayList<>();
+        assertEquals(4, pool.borrow("a", 4, states));
+        states.get(0).get().valid = false;
+        states.get(2).get().valid = false;
+        pool.returnAll(states);
+        states.clear();
+        // the permits of the invalid objects are taken over by their replacements
+        assertEquals(4, pool.borrow("a", 4, states, true));
+        assertEquals(2, destroyed.size());
+        for (var state : states) {
+            assertTrue(state.get().isValid());
+        }
+    }
+
+    @Test
+    void testThreadCachedPool() {
+        final List<Item> destroyed = new ArrayList<>();
+        final var pool = new ThreadCachedPool<>(new FixedObjectPool<>(2, Item::new, destroyed::add, ON_BORROW));
+        final var state = pool.tryBorrow();
+        final Item item = state.get();
+        pool.returning(state);
+        item.valid = false;
+        // the object in the magazine is validated by the underlying pool
+        final var replaced = pool.tryBorrow();
+        assertSame(state, replaced);
+        assertNotSame(item, replaced.get());
+        assertEquals(List.of(item), destroyed);
+    }
+
+    @Test
+    void testFixedObjectPool() {
+        final List<Item> destroyed = new ArrayList<>();
+        final var pool = new FixedObjectPool<>(2, Item::new, destroyed::add,
+            PoolConfig.DEFAULT.withValidation(new ValidationConfig(true, true, 0)));
+        final var a = pool.tryBorrow();
+        final var b = pool.tryBorrow();
+        assertNull(pool.tryBorrow());
+        final Item itemA = a.get();
+        itemA.valid = false;
+        pool.returning(a);
+        assertEquals(List.of(itemA), destroyed);
+        pool.returning(b);
+        b.get().valid = false;
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(2, pool.borrow(2, states));
+        assertEquals(2, destroyed.size());
+        for (var state : states) {
+            assertTrue(state.get().isValid());
+        }
+    }
+
+    @Test
+    void testConstructorFailure() {
+        final AtomicInteger created = new AtomicInteger();
+        final var pool = new FixedObjectPool<>(1, () -> {
+            if (created.incrementAndGet() == 2) {
+                throw new IllegalStateException();
+            }
+            return new Item();
+        }, null, ON_BORROW);
+        final var state = pool.tryBorrow();
+        state.get().valid = false;
+        pool.returning(state);
+        assertThrows(IllegalStateException.class, pool::tryBorrow);
+        // the slot is empty again
+        assertNotNull(pool.tryBorrow());
+        assertEquals(3, created.get());
+    }
+
+    @Test
+    void testIdle() {
+        final List<Item> destroyed = new ArrayList<>();
+        final var pool = new StripedObjectPool<>(Item::new, destroyed::add, 1, 8,
+            PoolConfig.DEFAULT.withValidation(new ValidationConfig(3)));
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(8, pool.borrow(8, states));
+        for (var state : states) {
+            state.get().valid = false;
+        }
+        pool.returnAll(states);
+        // each pass checks a batch; nothing is checked on borrow
+        assertEquals(3, pool.validateIdle());
+        assertEquals(3, pool.validateIdle());
+        assertEquals(2, pool.validateIdle());
+        assertEquals(0, pool.validateIdle());
+        assertEquals(8, destroyed.size());
+        assertTrue(pool.tryBorrow().get().isValid());
+    }
+
+    @Test
+    void testIdleKeepsOrder() {
+        final var pool = new FixedObjectPool<>(4, Item::new, null,
+            PoolConfig.DEFAULT.withValidation(new ValidationConfig(4)));
+        final List<PoolObjectState<Item>> states = new ArrayList<>();
+        assertEquals(4, pool.borrow(4, states));
+        states.get(1).get().valid = false;
+        final Item top = states.get(3).get();
+        for (var state : states) {
+            pool.returning(state);
+        }
+        assertEquals(1, pool.validateIdle());
+        assertSame(top, pool.tryBorrow().get());
+    }
+
+    @Test
+    void testScheduled() throws Exception {
+        final AtomicInteger destroyed = new AtomicInteger();
+        final var pool = new ObjectPool<>(Item::new, item -> destroyed.incrementAndGet(), 4,
+            PoolConfig.DEFAULT.withValidation(new ValidationConfig(4)));
+        final var state = pool.tryBorrow();
+        state.get().valid = false;
+        pool.returning(state);
+        final var future = pool.scheduleValidation(Duration.ofMillis(10));
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (destroyed.get() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        } finally {
+            future.cancel(false);
+        }
+        assertEquals(1, destroyed.get());
+    }
+
+    @Test
+    void testUnsupported() {
+        final var config = PoolConfig.DEFAULT.withValidation(new ValidationConfig(1));
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(64, 1024, config));
+        assertThrows(IllegalArgumentException.class, () -> new ValidationConfig(-1));
+    }
+}
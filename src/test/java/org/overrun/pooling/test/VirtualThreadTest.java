@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Overrun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ */
+
+package org.overrun.pooling.test;
+
+import org.junit.jupiter.api.Test;
+import org.overrun.pooling.FixedObjectPool;
+import org.overrun.pooling.Pool;
+import org.overrun.pooling.Poolable;
+import org.overrun.pooling.StripedObjectPool;
+import org.overrun.pooling.ThreadCachedPool;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Borrows from many virtual threads at once; skipped before Java 21.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+class VirtualThreadTest {
+    private static final int THREADS = 10_000;
+
+    static final class Counter implements Poolable {
+        final AtomicBoolean inUse = new AtomicBoolean();
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    /**
+     * {@return an executor that starts a virtual thread for each task; or {@code null} before Java 21}
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                .findStatic(java.util.concurrent.Executors.class,
+                    "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class))
+                .invoke();
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void runVirtualThreads(Runnable runnable) throws InterruptedException {
+        final ExecutorService executor = newVirtualThreadExecutor();
+        assumeTrue(executor != null, "virtual threads are not supported");
+        final CountDownLatch latch = new CountDownLatch(THREADS);
+        final AtomicReference<Throwable> firstError = new AtomicReference<>();
+        for (int i = 0; i < THREADS; i++) {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } catch (Throwable e) {
+                    firstError.compareAndSet(null, e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(1, TimeUnit.MINUTES), "virtual threads did not finish");
+        executor.shutdown();
+        if (firstError.get() != null) fail(firstError.get());
+    }
+
+    private static <T extends Poolable> void borrowAndYield(Pool<T> pool, Consumer<T> action) {
+        for (int i = 0; i < 10; i++) {
+            final var state = pool.tryBorrow();
+            assertNotNull(state);
+            action.accept(state.get());
+            Thread.yield();
+            pool.returning(state);
+        }
+    }
+
+    private static void use(Counter counter) {
+        assertTrue(counter.inUse.compareAndSet(false, true), "object lent twice");
+        Thread.yield();
+        counter.inUse.set(false);
+    }
+
+    @Test
+    void testStripedObjectPool() throws InterruptedException {
+        final var pool = new StripedObjectPool<>(Counter::new);
+        runVirtualThreads(() -> borrowAndYield(pool, VirtualThreadTest::use));
+    }
+
+    @Test
+    void testThreadCachedPool() throws InterruptedException {
+        final var pool = new ThreadCachedPool<>(new StripedObjectPool<>(Counter::new), 8,
+            ThreadCachedPool.StealPolicy.NEVER, ThreadCachedPool.CacheScope.STRIPE);
+        runVirtualThreads(() -> borrowAndYield(pool, VirtualThreadTest::use));
+    }
+
+    @Test
+    void testFixedObjectPoolBlocking() throws InterruptedException {
+        final var pool = new FixedObjectPool<>(16, Counter::new);
+        runVirtualThreads(() -> {
+            try {
+                final var state = pool.borrowBlocking().state();
+                use(state.get());
+                pool.returning(state);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+        for (int i = 0; i < 16; i++) {
+            assertNotNull(pool.tryBorrow());
+        }
+    }
+}